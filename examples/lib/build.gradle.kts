@@ -33,6 +33,13 @@ jextract.libraries {
         // Make your public headers folder searchable for Jextract
         includes.add(layout.projectDirectory.dir("src/main/public"))
         legalNotices.add(layout.projectDirectory.dir("src/main/lib/legal"))
+        // Generate a loader class, BassNatives, and publish the binaries of each platform in a separate variant
+        bundleNatives = true
+        platforms {
+            register("linux-x64") { libraryPath.add(layout.projectDirectory.dir("src/main/lib/linux/x64")) }
+            register("mac-x64") { libraryPath.add(layout.projectDirectory.dir("src/main/lib/macos/x64")) }
+            register("windows-x64") { libraryPath.add(layout.projectDirectory.dir("src/main/lib/windows/x64")) }
+        }
         // For large headers it is good practice to generate only the symbols you need.
         whitelist {
             // We only want to access the BASS version
@@ -41,14 +48,6 @@ jextract.libraries {
     }
 
     sourceSets.main {
-        resources.srcDir(findLibraryPath().get())
         jextract.libraries.addLater(bass)
     }
 }
-
-fun findLibraryPath() = providers.systemProperty("os.name").map {
-    val basePath = layout.projectDirectory.dir("src/main/lib")
-    if (it.contains("windows", true)) basePath.dir("windows/x64")
-    else if (it.contains("mac", true)) basePath.dir("macos/x64")
-    else basePath.dir("linux/x64")
-}
@@ -4,7 +4,7 @@ import java.nio.ByteBuffer;
 
 public final class Bass {
     public Bass() {
-        LibLoader.loadLibraries();
+        com.un4seen.bass.BassNatives.load();
     }
 
     public VersionNumber getVersion() {
@@ -1,10 +1,17 @@
 package de.infolektuell.gradle.jextract;
 
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GradleJextractPluginFunctionalTest {
@@ -32,4 +39,79 @@ class GradleJextractPluginFunctionalTest {
         var result = runner.build();
         assertTrue(result.getOutput().contains("BUILD SUCCESSFUL"));
     }
+
+    @Test
+    void canGenerateInWorkerProcesses() {
+        var runner = GradleRunner.create();
+        runner.withProjectDir(getProjectDir().toFile());
+        runner.forwardOutput();
+        runner.withPluginClasspath();
+        // The workers run on the jlinked runtime image of the Jextract installation, which only fails at execution if it lacks a module.
+        runner.withArguments("lib:clean", "lib:build", "--no-build-cache", "-Porg.openjdk.jextract.worker-processes=true", "--stacktrace");
+        var result = runner.build();
+        var generate = result.task(":lib:generateBassBindings");
+        assertTrue(generate != null);
+        assertEquals(TaskOutcome.SUCCESS, generate.getOutcome());
+    }
+
+    @Test
+    void canUpdateBindingsIncrementally(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("settings.gradle.kts"), "rootProject.name = \"shapes\"\n");
+        Files.createDirectories(dir.resolve("src/main/public"));
+        Files.writeString(dir.resolve("src/main/public/shapes.h"), """
+            struct Point { int x; int y; };
+            int shapes_version(void);
+            int shapes_area(struct Point *p);
+            void shapes_free(struct Point *p);
+            """);
+        writeShapesBuildScript(dir, "shapes_version", "shapes_free");
+        var runner = GradleRunner.create();
+        runner.withProjectDir(dir.toFile());
+        runner.forwardOutput();
+        runner.withPluginClasspath();
+        runner.withArguments("compileJava", "--stacktrace");
+        runner.build();
+
+        // Adds a function using a struct that was generated before and removes another one.
+        writeShapesBuildScript(dir, "shapes_version", "shapes_area");
+        var result = runner.build();
+        var generate = result.task(":generateShapesBindings");
+        assertTrue(generate != null);
+        assertEquals(TaskOutcome.SUCCESS, generate.getOutcome());
+        Path sources = dir.resolve("build/generated/sources/jextract/java/shapes/com/example/shapes");
+        String headerClass = Files.readString(sources.resolve("shapes_h.java"));
+        assertTrue(headerClass.contains("shapes_area"));
+        assertFalse(headerClass.contains("shapes_free"));
+        assertTrue(Files.isRegularFile(sources.resolve("Point.java")));
+    }
+
+    private void writeShapesBuildScript(Path dir, String... functions) throws IOException {
+        Files.writeString(dir.resolve("build.gradle.kts"), """
+            plugins {
+                java
+                id("de.infolektuell.jextract")
+            }
+
+            java {
+                toolchain {
+                    languageVersion = JavaLanguageVersion.of(25)
+                }
+            }
+
+            jextract.libraries {
+                val shapes by registering {
+                    header = layout.projectDirectory.file("src/main/public/shapes.h")
+                    targetPackage = "com.example.shapes"
+                    whitelist {
+                        functions.addAll(%s)
+                        structs.add("Point")
+                    }
+                }
+
+                sourceSets.main {
+                    jextract.libraries.addLater(shapes)
+                }
+            }
+            """.formatted(String.join(", ", Arrays.stream(functions).map(it -> "\"" + it + "\"").toList())));
+    }
 }
@@ -0,0 +1,50 @@
+package de.infolektuell.gradle.jextract;
+
+import org.gradle.api.Named;
+import org.gradle.api.attributes.AttributeDisambiguationRule;
+import org.gradle.api.attributes.MultipleCandidatesDetails;
+import org.gradle.nativeplatform.MachineArchitecture;
+import org.gradle.nativeplatform.OperatingSystemFamily;
+import org.jspecify.annotations.NonNull;
+
+import javax.inject.Inject;
+
+/// Selects the native binaries of the current platform when a consumer doesn't request an operating system or architecture
+///
+/// Without this rule, resolving a library that publishes platform variants would be ambiguous for such consumers.
+/// @param <T> The attribute type
+public abstract class CurrentPlatformRule<T extends Named> implements AttributeDisambiguationRule<@NonNull T> {
+    private final String current;
+
+    /// Used by Gradle
+    /// @param current The attribute value of the current platform
+    protected CurrentPlatformRule(String current) {
+        super();
+        this.current = current;
+    }
+
+    @Override
+    public void execute(MultipleCandidatesDetails<@NonNull T> details) {
+        if (details.getConsumerValue() != null) return;
+        details.getCandidateValues().stream()
+            .filter(it -> it.getName().equals(current))
+            .findFirst()
+            .ifPresent(details::closestMatch);
+    }
+
+    /// Prefers the operating system of the current platform
+    public static class OperatingSystem extends CurrentPlatformRule<@NonNull OperatingSystemFamily> {
+        /// Used by Gradle
+        /// @param current The operating system family of the current platform
+        @Inject
+        public OperatingSystem(String current) { super(current); }
+    }
+
+    /// Prefers the architecture of the current platform
+    public static class Architecture extends CurrentPlatformRule<@NonNull MachineArchitecture> {
+        /// Used by Gradle
+        /// @param current The machine architecture of the current platform
+        @Inject
+        public Architecture(String current) { super(current); }
+    }
+}
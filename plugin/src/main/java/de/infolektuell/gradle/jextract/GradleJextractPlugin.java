@@ -1,19 +1,33 @@
 package de.infolektuell.gradle.jextract;
 
 import de.infolektuell.gradle.jextract.extensions.JextractExtension;
+import de.infolektuell.gradle.jextract.extensions.LibraryHandler;
+import de.infolektuell.gradle.jextract.extensions.PlatformHandler;
 import de.infolektuell.gradle.jextract.extensions.SourceSetExtension;
+import de.infolektuell.gradle.jextract.model.DirectoryIndex;
+import de.infolektuell.gradle.jextract.model.Platform;
+import de.infolektuell.gradle.jextract.model.ShardPlan;
+import de.infolektuell.gradle.jextract.service.DirectoryIndexService;
 import de.infolektuell.gradle.jextract.service.JextractStore;
+import de.infolektuell.gradle.jextract.service.LocalInstallationFingerprint;
 import de.infolektuell.gradle.jextract.tasks.*;
 
 import static de.infolektuell.gradle.jextract.tasks.JextractBaseTask.*;
 
 import org.gradle.api.*;
+import org.gradle.api.artifacts.ConsumableConfiguration;
 import org.gradle.api.artifacts.DependencyScopeConfiguration;
+import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.artifacts.ResolvableConfiguration;
 import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
 import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Bundling;
+import org.gradle.api.attributes.Category;
 import org.gradle.api.attributes.LibraryElements;
 import org.gradle.api.attributes.Usage;
+import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.component.ConfigurationVariantDetails;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFile;
@@ -21,23 +35,27 @@ import org.gradle.api.plugins.JavaApplication;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.publish.PublishingExtension;
+import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.jvm.Jvm;
 import org.gradle.jvm.toolchain.JavaCompiler;
 import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.jvm.toolchain.JavaToolchainService;
+import org.gradle.nativeplatform.MachineArchitecture;
+import org.gradle.nativeplatform.OperatingSystemFamily;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
-import java.nio.file.PathMatcher;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -50,6 +68,18 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
     ///  The gradle property to set a local Jextract installation path
     public static final String JEXTRACT_LOCAL_INSTALLATION_PROPERTY = "org.openjdk.jextract.installation-path";
 
+    ///  The gradle property to set the directory where Jextract distributions are downloaded and installed, defaults to `jextract` in the Gradle user home
+    public static final String JEXTRACT_CACHE_DIR_PROPERTY = "org.openjdk.jextract.cache-dir";
+
+    ///  The gradle property to limit how many Jextract tasks may run in parallel, defaults to the number of available processors
+    public static final String JEXTRACT_MAX_PARALLEL_USAGES_PROPERTY = "org.openjdk.jextract.max-parallel-usages";
+
+    ///  The gradle property to run Jextract in reusable Gradle worker processes instead of starting a new process for each run
+    public static final String JEXTRACT_WORKER_PROCESSES_PROPERTY = "org.openjdk.jextract.worker-processes";
+
+    ///  The gradle property to create a class data sharing archive for downloaded Jextract installations, so Jextract starts faster
+    public static final String JEXTRACT_CLASS_DATA_SHARING_PROPERTY = "org.openjdk.jextract.class-data-sharing";
+
     /// Used by Gradle
     public GradleJextractPlugin() { super(); }
 
@@ -67,16 +97,42 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
             lib.getUseSystemLoadLibrary().convention(false);
             lib.getOutput().convention(extension.getOutput().dir(lib.getName()));
             lib.getGenerateSourceFiles().convention(extension.getGenerateSourceFiles());
+            lib.getTrackIncludedHeaders().convention(false);
+            lib.getShards().convention(1);
+            lib.getPackageAsJar().convention(false);
+            lib.getNormalizeOutput().convention(false);
+            lib.getExpandWhitelist().convention(false);
+            lib.getPruneUnusedBindings().convention(false);
+            lib.getVerifyExports().convention(false);
+            lib.getBundleNatives().convention(false);
+            lib.getInstrumentation().getEnabled().convention(false);
+            lib.getInstrumentation().getThreshold().convention("0 ms");
+            lib.getInstrumentation().getSampling().convention(1);
         });
 
+        final Directory rootDir = project.getRootProject().getLayout().getProjectDirectory();
+        final Provider<@NonNull Directory> cacheDir = project.getProviders().gradleProperty(JEXTRACT_CACHE_DIR_PROPERTY)
+            .map(rootDir::dir)
+            .orElse(rootDir.dir(new File(project.getGradle().getGradleUserHomeDir(), "jextract").getAbsolutePath()));
         project.getGradle().getSharedServices().registerIfAbsent(JextractStore.SERVICE_NAME, JextractStore.class, s -> {
-            s.getMaxParallelUsages().convention(1);
+            final Provider<@NonNull Integer> maxParallelUsages = project.getProviders().gradleProperty(JEXTRACT_MAX_PARALLEL_USAGES_PROPERTY)
+                .map(Integer::parseInt)
+                .orElse(Runtime.getRuntime().availableProcessors());
+            s.getMaxParallelUsages().convention(maxParallelUsages);
             s.parameters(parameters -> {
-                parameters.getCacheDir().convention(project.getRootProject().getLayout().getProjectDirectory().dir(".gradle/jextract"));
+                parameters.getCacheDir().convention(cacheDir);
                 parameters.getDistributions().convention(extension.getInstallation().getDistributions());
+                parameters.getClassDataSharing().convention(project.getProviders().gradleProperty(JEXTRACT_CLASS_DATA_SHARING_PROPERTY).map(Boolean::parseBoolean).orElse(false));
             });
         });
 
+        final Provider<@NonNull DirectoryIndexService> directoryIndex = project.getGradle().getSharedServices().registerIfAbsent(DirectoryIndexService.SERVICE_NAME, DirectoryIndexService.class);
+
+        final Provider<@NonNull Boolean> useWorkerProcesses = project.getProviders().gradleProperty(JEXTRACT_WORKER_PROCESSES_PROPERTY)
+            .map(Boolean::parseBoolean)
+            .orElse(false);
+        project.getTasks().withType(JextractBaseTask.class).configureEach(task -> task.getUseWorkerProcesses().convention(useWorkerProcesses));
+
         project.getDependencies().registerTransform(DirectorifyAction.class, transform -> {
             transform.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, "dll");
             transform.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.DIRECTORY_TYPE);
@@ -93,6 +149,9 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
         project.getPlugins().apply(JavaPlugin.class);
         project.getPluginManager().withPlugin("java", javaPlugin -> {
             final JavaPluginExtension javaExtension = project.getExtensions().getByType(JavaPluginExtension.class);
+            final Platform currentPlatform = Platform.getCurrentPlatform();
+            project.getDependencies().getAttributesSchema().attribute(OperatingSystemFamily.OPERATING_SYSTEM_ATTRIBUTE).getDisambiguationRules().add(CurrentPlatformRule.OperatingSystem.class, config -> config.params(operatingSystemFamily(currentPlatform)));
+            project.getDependencies().getAttributesSchema().attribute(MachineArchitecture.ARCHITECTURE_ATTRIBUTE).getDisambiguationRules().add(CurrentPlatformRule.Architecture.class, config -> config.params(machineArchitecture(currentPlatform)));
             final Provider<@NonNull JavaLanguageVersion> javaVersion = javaExtension.getToolchain().getLanguageVersion()
                     .orElse(JavaLanguageVersion.of(Objects.requireNonNullElse(Jvm.current().getJavaVersionMajor(), 25)));
             extension.getInstallation().getJavaLanguageVersion().convention(javaVersion);
@@ -106,6 +165,10 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
             final Provider<@NonNull JextractInstallation> jextractInstallation = extension.getInstallation().getLocation().map(location -> {
                     final var installation = project.getObjects().newInstance(LocalJextractInstallation.class);
                     installation.getLocation().convention(location);
+                    installation.getFingerprint().convention(project.getProviders().of(LocalInstallationFingerprint.class, spec -> {
+                        spec.getParameters().getLocation().set(location);
+                        spec.getParameters().getCacheDir().set(cacheDir);
+                    }));
                     return (JextractInstallation) installation;
                 })
                 .orElse(extension.getInstallation().getJavaLanguageVersion().map(version -> {
@@ -144,15 +207,19 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
                         a.attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.NATIVE_RUNTIME));
                         a.attribute(Attribute.of("org.gradle.native.optimized", Boolean.class), true);
                         a.attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.DIRECTORY_TYPE);
+                        platformAttributes(project, a, Platform.getCurrentPlatform());
                     });
                 });
-                libraryPathProvider.getFiles().from(lib.getLibraryPath(), libraryPathConfig);
+                final Provider<@NonNull List<@NonNull Directory>> platformLibraryPath = currentPlatformLibraryPath(project, lib);
+                libraryPathProvider.getFiles().from(lib.getLibraryPath(), platformLibraryPath, libraryPathConfig);
 
                 final Provider<@NonNull RegularFile> headerFile = headerDirectoriesConfig.zip(lib.getDependencies().getHeaderFilter(), (config, patterns) -> {
-                    return config.resolve().stream()
-                        .map(d -> project.getLayout().getProjectDirectory().dir(d.getAbsolutePath()).getAsFileTree().matching(spec -> spec.include("**/*.h").include(patterns)).getFiles())
-                        .flatMap(Collection::stream)
-                        .map(f -> project.getLayout().getProjectDirectory().file(f.getAbsolutePath()))
+                    final Set<@NonNull File> directories = config.resolve();
+                    return Stream.of(patterns, Set.of("**/*.h"))
+                        .filter(p -> !p.isEmpty())
+                        .flatMap(p -> directories.stream().map(d -> directoryIndex.get().getIndex().findFirst(d.toPath(), p)))
+                        .flatMap(Optional::stream)
+                        .map(f -> project.getLayout().getProjectDirectory().file(f.toString()))
                         .findFirst().orElse(null);
                 });
                 final Provider<@NonNull List<@NonNull Directory>> includeDirectories = includePathConfig.zip(lib.getIncludes(), (config, includes) -> {
@@ -163,17 +230,11 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
                     )
                         .collect(Collectors.toList());
                 });
-                project.getTasks().register(lib.getGenerateBindingsTaskName(), JextractGenerateTask.class, task -> {
-                    task.setDescription("Uses Jextract to generate Java bindings for the " + lib.getName() + " native library");
-                    task.getInstallation().convention(jextractInstallation);
-                    task.getHeader().convention(lib.getHeader().orElse(headerFile));
-                    task.getIncludes().convention(includeDirectories);
-                    task.getDefinedMacros().convention(lib.getDefinedMacros());
-                    task.getHeaderClassName().convention(lib.getHeaderClassName());
-                    task.getTargetPackage().convention(lib.getTargetPackage());
+                final TaskProvider<@NonNull JextractWhitelistTask> whitelistTask = project.getTasks().register(lib.getWriteWhitelistTaskName(), JextractWhitelistTask.class, task -> {
+                    task.setDescription("Writes the whitelist of the " + lib.getName() + " native library into an arg file");
                     final Provider<@NonNull Map<@NonNull String, @NonNull Set<@NonNull String>>> whitelist = project.getProviders().provider(() -> {
                         return Map.of(
-                            "function", lib.getWhitelist().getFunctions().get(),
+                            "function", Stream.of(lib.getWhitelist().getFunctions().get(), lib.getWhitelist().getCriticalFunctions().get().keySet(), lib.getWhitelist().getBlockingFunctions().get()).flatMap(Collection::stream).collect(Collectors.toSet()),
                             "constant", lib.getWhitelist().getConstants().get(),
                             "struct", lib.getWhitelist().getStructs().get(),
                             "union", lib.getWhitelist().getUnions().get(),
@@ -182,20 +243,204 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
                         );
                     });
                     task.getWhitelist().convention(whitelist);
+                    task.getArgFile().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/whitelist.txt"));
+                });
+                final TaskProvider<@NonNull JextractIncludedHeadersTask> includedHeadersTask = project.getTasks().register(lib.getRecordIncludedHeadersTaskName(), JextractIncludedHeadersTask.class, task -> {
+                    task.setDescription("Records the headers reachable from the header of the " + lib.getName() + " native library");
+                    task.getHeader().convention(lib.getHeader().orElse(headerFile));
+                    task.getIncludes().convention(includeDirectories);
+                    task.getIncludedHeaders().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/included-headers.txt"));
+                });
+                final Provider<@NonNull RegularFile> includedHeaders = lib.getTrackIncludedHeaders().filter(Boolean::booleanValue).flatMap(it -> includedHeadersTask.flatMap(JextractIncludedHeadersTask::getIncludedHeaders));
+                final TaskProvider<@NonNull JextractDumpIncludesTask> dumpTask = project.getTasks().register(lib.getDumpIncludesTaskName(), JextractDumpIncludesTask.class, task -> {
+                    task.setDescription("Uses Jextract to dump all includes of the " + lib.getName() + " native library into an arg file");
+                    task.getInstallation().convention(jextractInstallation);
+                    task.getHeader().convention(lib.getHeader().orElse(headerFile));
+                    task.getIncludes().convention(includeDirectories);
+                    task.getArgFile().convention(project.getLayout().getBuildDirectory().file("reports/jextract/" + lib.getName() + "-includes.txt"));
+                    task.getSymbolIndex().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/symbols.idx"));
+                    task.getIncludedHeaders().convention(includedHeaders);
+                });
+                project.getTasks().register(lib.getValidateWhitelistTaskName(), JextractValidateWhitelistTask.class, task -> {
+                    task.setGroup("verification");
+                    task.setDescription("Checks the whitelist of the " + lib.getName() + " native library against the symbols of its header");
+                    task.getSymbolIndex().convention(dumpTask.flatMap(JextractDumpIncludesTask::getSymbolIndex));
+                    task.getWhitelistFile().convention(whitelistTask.flatMap(JextractWhitelistTask::getArgFile));
+                    task.getArgFile().convention(lib.getWhitelist().getArgFile());
+                    task.getReport().convention(project.getLayout().getBuildDirectory().file("reports/jextract/" + lib.getName() + "-whitelist.txt"));
+                });
+                final TaskProvider<@NonNull JextractExpandWhitelistTask> expandTask = project.getTasks().register(lib.getExpandWhitelistTaskName(), JextractExpandWhitelistTask.class, task -> {
+                    task.setDescription("Expands the whitelist of the " + lib.getName() + " native library with the dependencies of its symbols");
+                    task.getSymbolIndex().convention(dumpTask.flatMap(JextractDumpIncludesTask::getSymbolIndex));
+                    task.getWhitelistFile().convention(whitelistTask.flatMap(JextractWhitelistTask::getArgFile));
                     task.getArgFile().convention(lib.getWhitelist().getArgFile());
+                    task.getExpandedArgFile().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/whitelist-expanded.txt"));
+                });
+                final TaskProvider<@NonNull JextractVerifyExportsTask> verifyExportsTask = project.getTasks().register(lib.getVerifyExportsTaskName(), JextractVerifyExportsTask.class, task -> {
+                    task.setGroup("verification");
+                    task.setDescription("Checks that the native binaries of the " + lib.getName() + " library export all whitelisted symbols");
+                    task.getBinaries().from(lib.getLibraryPath(), platformLibraryPath, libraryPathConfig);
+                    task.getLibraries().convention(lib.getLibraries());
+                    task.getWhitelistFile().convention(whitelistTask.flatMap(JextractWhitelistTask::getArgFile));
+                    task.getSymbolIndex().convention(dumpTask.flatMap(JextractDumpIncludesTask::getSymbolIndex));
+                    task.getReport().convention(project.getLayout().getBuildDirectory().file("reports/jextract/" + lib.getName() + "-exports.txt"));
+                    task.getExportedArgFile().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/whitelist-exported.txt"));
+                });
+                final Provider<JextractGenerateTask.@NonNull Instrumentation> instrumentation = lib.getInstrumentation().getEnabled().filter(Boolean::booleanValue).map(it -> {
+                    final var settings = project.getObjects().newInstance(JextractGenerateTask.Instrumentation.class);
+                    settings.getThreshold().set(lib.getInstrumentation().getThreshold());
+                    settings.getSampling().set(lib.getInstrumentation().getSampling());
+                    return settings;
+                });
+                final TaskProvider<@NonNull JextractGenerateTask> generateTask = project.getTasks().register(lib.getGenerateBindingsTaskName(), JextractGenerateTask.class, task -> {
+                    task.setDescription("Uses Jextract to generate Java bindings for the " + lib.getName() + " native library");
+                    task.getInstallation().convention(jextractInstallation);
+                    task.getHeader().convention(lib.getHeader().orElse(headerFile));
+                    task.getIncludes().convention(includeDirectories);
+                    task.getDefinedMacros().convention(lib.getDefinedMacros());
+                    task.getHeaderClassName().convention(lib.getHeaderClassName());
+                    task.getTargetPackage().convention(lib.getTargetPackage());
+                    task.getWhitelistFile().convention(lib.getExpandWhitelist().flatMap(expand -> expand ? expandTask.flatMap(JextractExpandWhitelistTask::getExpandedArgFile) : whitelistTask.flatMap(JextractWhitelistTask::getArgFile)));
+                    task.getArgFile().convention(lib.getExpandWhitelist().flatMap(expand -> expand ? project.getObjects().fileProperty() : lib.getWhitelist().getArgFile()));
+                    task.getManifest().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/manifest.properties"));
                     task.getLibraries().convention(lib.getLibraries());
                     task.getUseSystemLoadLibrary().convention(lib.getUseSystemLoadLibrary());
                     task.getGenerateSourceFiles().convention(lib.getGenerateSourceFiles());
+                    task.getShards().convention(lib.getShards());
+                    task.getNormalizeOutput().convention(lib.getNormalizeOutput());
+                    task.getCriticalFunctions().convention(lib.getWhitelist().getCriticalFunctions());
+                    task.getBlockingFunctions().convention(lib.getWhitelist().getBlockingFunctions());
+                    task.getInstrumentation().convention(instrumentation);
                     task.getSources().convention(lib.getOutput());
                     task.getClasses().convention(project.getLayout().getBuildDirectory().dir("generated/classes/jextract/java/" + lib.getName()));
+                    task.getJar().convention(lib.getPackageAsJar().filter(Boolean::booleanValue).flatMap(it -> project.getLayout().getBuildDirectory().file("generated/jars/jextract/" + lib.getName() + ".jar")));
+                    task.getIncludedHeaders().convention(includedHeaders);
+                    final Provider<JextractGenerateTask.@NonNull GroupShare> groupShare = project.getProviders().provider(() -> extension.getGroups().stream().filter(g -> g.getLibraries().get().contains(lib.getName())).findFirst().orElse(null))
+                        .map(group -> {
+                            final TaskProvider<@NonNull JextractGenerateTask> groupTask = project.getTasks().named(group.getGenerateBindingsTaskName(), JextractGenerateTask.class);
+                            final TaskProvider<@NonNull JextractUmbrellaHeaderTask> umbrellaTask = project.getTasks().named(group.getUmbrellaHeaderTaskName(), JextractUmbrellaHeaderTask.class);
+                            final var share = project.getObjects().newInstance(JextractGenerateTask.GroupShare.class);
+                            share.getSources().set(groupTask.flatMap(JextractGenerateTask::getSources));
+                            share.getClasses().set(groupTask.flatMap(JextractGenerateTask::getClasses));
+                            share.getSymbols().set(groupTask.flatMap(JextractGenerateTask::getSymbols));
+                            share.getMemberHeaders().set(umbrellaTask.flatMap(JextractUmbrellaHeaderTask::getHeaders));
+                            share.getMemberIndex().set(group.getLibraries().get().indexOf(lib.getName()));
+                            return share;
+                        });
+                    task.getGroupShare().convention(groupShare);
+                    task.dependsOn(lib.getVerifyExports().map(verify -> verify ? List.of(verifyExportsTask) : List.of()));
                 });
-
-                project.getTasks().register(lib.getDumpIncludesTaskName(), JextractDumpIncludesTask.class, task -> {
-                    task.setDescription("Uses Jextract to dump all includes of the " + lib.getName() + " native library into an arg file");
+                project.getTasks().register(lib.getBundleNativesTaskName(), JextractBundleNativesTask.class, task -> {
+                    task.setDescription("Bundles the native binaries of the " + lib.getName() + " library with a loader class");
+                    // With platforms, the binaries are published in separate variants, so only the loader is generated.
+                    task.getBinaries().from(project.getProviders().provider(() -> lib.getPlatforms().isEmpty() ? List.of(lib.getLibraryPath(), libraryPathConfig) : List.of()));
+                    task.getLibraries().convention(lib.getLibraries());
+                    task.getLibraryName().convention(lib.getName());
+                    task.getPlatform().convention(Platform.getCurrentPlatform().getId());
+                    task.getTargetPackage().convention(lib.getTargetPackage().orElse(""));
+                    task.getClassName().convention(lib.getHeaderClassName().orElse(generateTask.flatMap(JextractGenerateTask::getHeader).map(h -> ShardPlan.headerClassName(h.getAsFile().toPath()))).map(it -> it + "Natives"));
+                    task.getSources().convention(project.getLayout().getBuildDirectory().dir("generated/sources/jextract-natives/java/" + lib.getName()));
+                    task.getResources().convention(project.getLayout().getBuildDirectory().dir("generated/resources/jextract-natives/" + lib.getName()));
+                });
+                final TaskProvider<@NonNull JextractDeriveWhitelistTask> deriveTask = project.getTasks().register(lib.getDeriveWhitelistTaskName(), JextractDeriveWhitelistTask.class, task -> {
+                    task.setDescription("Derives the whitelist of the " + lib.getName() + " native library from the classes using its bindings");
+                    task.getSymbolIndex().convention(dumpTask.flatMap(JextractDumpIncludesTask::getSymbolIndex));
+                    task.getTargetPackage().convention(lib.getTargetPackage().orElse(""));
+                    task.getHeaderClassName().convention(lib.getHeaderClassName().orElse(generateTask.flatMap(JextractGenerateTask::getHeader).map(h -> ShardPlan.headerClassName(h.getAsFile().toPath()))));
+                    task.getArgFile().convention(project.getLayout().getBuildDirectory().file("jextract/" + lib.getName() + "/whitelist-used.txt"));
+                });
+                project.getTasks().register(lib.getGenerateUsedBindingsTaskName(), JextractGenerateTask.class, task -> {
+                    task.setDescription("Uses Jextract to generate Java bindings for the used symbols of the " + lib.getName() + " native library");
                     task.getInstallation().convention(jextractInstallation);
-                    task.getHeader().convention(lib.getHeader().orElse(headerFile));
+                    task.getHeader().convention(generateTask.flatMap(JextractGenerateTask::getHeader));
                     task.getIncludes().convention(includeDirectories);
-                    task.getArgFile().convention(project.getLayout().getBuildDirectory().file("reports/jextract/" + lib.getName() + "-includes.txt"));
+                    task.getDefinedMacros().convention(lib.getDefinedMacros());
+                    task.getHeaderClassName().convention(lib.getHeaderClassName());
+                    task.getTargetPackage().convention(lib.getTargetPackage());
+                    task.getWhitelistFile().convention(deriveTask.flatMap(JextractDeriveWhitelistTask::getArgFile));
+                    task.getLibraries().convention(lib.getLibraries());
+                    task.getUseSystemLoadLibrary().convention(lib.getUseSystemLoadLibrary());
+                    task.getGenerateSourceFiles().convention(lib.getGenerateSourceFiles());
+                    task.getNormalizeOutput().convention(lib.getNormalizeOutput());
+                    task.getCriticalFunctions().convention(lib.getWhitelist().getCriticalFunctions());
+                    task.getBlockingFunctions().convention(lib.getWhitelist().getBlockingFunctions());
+                    task.getInstrumentation().convention(instrumentation);
+                    task.getSources().convention(project.getLayout().getBuildDirectory().dir("generated/sources/jextract-used/java/" + lib.getName()));
+                    task.getClasses().convention(project.getLayout().getBuildDirectory().dir("generated/classes/jextract-used/java/" + lib.getName()));
+                    task.getJar().convention(lib.getPackageAsJar().filter(Boolean::booleanValue).flatMap(it -> project.getLayout().getBuildDirectory().file("generated/jars/jextract/" + lib.getName() + "-used.jar")));
+                });
+                // Jextract 22 and above only writes sources, so pruned bindings must be compiled apart from the source sets.
+                project.getTasks().register(lib.getCompileBindingsTaskName(), JavaCompile.class, task -> {
+                    task.setDescription("Compiles the generated sources of the " + lib.getName() + " native library");
+                    task.source(generateTask.flatMap(JextractGenerateTask::getSources));
+                    task.include("**/*.java");
+                    task.setClasspath(project.getObjects().fileCollection());
+                    task.getDestinationDirectory().convention(project.getLayout().getBuildDirectory().dir("classes/jextract/java/" + lib.getName()));
+                });
+                project.getTasks().register(lib.getCompileUsedBindingsTaskName(), JavaCompile.class, task -> {
+                    task.setDescription("Compiles the generated sources for the used symbols of the " + lib.getName() + " native library");
+                    task.source(project.getTasks().named(lib.getGenerateUsedBindingsTaskName(), JextractGenerateTask.class).flatMap(JextractGenerateTask::getSources));
+                    task.include("**/*.java");
+                    task.setClasspath(project.getObjects().fileCollection());
+                    task.getDestinationDirectory().convention(project.getLayout().getBuildDirectory().dir("classes/jextract-used/java/" + lib.getName()));
+                });
+
+            });
+
+            extension.getGroups().configureEach(group -> {
+                final Provider<@NonNull List<@NonNull JextractGenerateTask>> members = group.getLibraries().map(names -> names.stream()
+                    .map(name -> project.getTasks().named(extension.getLibraries().getByName(name).getGenerateBindingsTaskName(), JextractGenerateTask.class).get())
+                    .toList());
+                final TaskProvider<@NonNull JextractWhitelistTask> whitelistTask = project.getTasks().register(group.getWriteWhitelistTaskName(), JextractWhitelistTask.class, task -> {
+                    task.setDescription("Writes the merged whitelist of all libraries in the " + group.getName() + " generation group into an arg file");
+                    // A member without whitelist and arg file needs all symbols, so the group must not be filtered at all.
+                    final Provider<@NonNull Boolean> isFiltered = group.getLibraries().map(names -> names.stream().map(name -> extension.getLibraries().getByName(name)).allMatch(lib ->
+                        project.getTasks().named(lib.getGenerateBindingsTaskName(), JextractGenerateTask.class).get().getArgFile().isPresent()
+                            || !project.getTasks().named(lib.getWriteWhitelistTaskName(), JextractWhitelistTask.class).get().getWhitelist().get().values().stream().allMatch(Set::isEmpty)));
+                    task.getWhitelist().convention(group.getLibraries().zip(isFiltered, (names, filtered) -> {
+                        final Map<@NonNull String, @NonNull Set<@NonNull String>> whitelist = new TreeMap<>();
+                        if (!filtered) return whitelist;
+                        names.forEach(name -> {
+                            final var member = project.getTasks().named(extension.getLibraries().getByName(name).getWriteWhitelistTaskName(), JextractWhitelistTask.class).get();
+                            member.getWhitelist().get().forEach((kind, symbols) -> whitelist.computeIfAbsent(kind, k -> new TreeSet<>()).addAll(symbols));
+                        });
+                        return whitelist;
+                    }));
+                    task.getArgFiles().from(isFiltered.flatMap(filtered -> members.map(tasks -> filtered
+                        ? tasks.stream().filter(t -> t.getArgFile().isPresent()).map(t -> t.getArgFile().get()).toList()
+                        : List.<RegularFile>of())));
+                    task.getArgFile().convention(project.getLayout().getBuildDirectory().file("jextract/groups/" + group.getName() + "/whitelist.txt"));
+                });
+                final TaskProvider<@NonNull JextractUmbrellaHeaderTask> umbrellaTask = project.getTasks().register(group.getUmbrellaHeaderTaskName(), JextractUmbrellaHeaderTask.class, task -> {
+                    task.setDescription("Writes a header file including the headers of all libraries in the " + group.getName() + " generation group");
+                    task.getHeaders().convention(members.map(tasks -> tasks.stream().map(t -> t.getHeader().get()).toList()));
+                    task.getUmbrellaHeader().convention(project.getLayout().getBuildDirectory().file("jextract/groups/" + group.getName() + "/" + group.getName() + ".h"));
+                });
+                project.getTasks().register(group.getGenerateBindingsTaskName(), JextractGenerateTask.class, task -> {
+                    task.setDescription("Uses Jextract to generate Java bindings for all libraries in the " + group.getName() + " generation group in a single run");
+                    task.getInstallation().convention(jextractInstallation);
+                    task.getHeader().convention(umbrellaTask.flatMap(JextractUmbrellaHeaderTask::getUmbrellaHeader));
+                    task.getIncludes().convention(members.map(tasks -> tasks.stream()
+                        .flatMap(t -> Stream.concat(Stream.of(project.getLayout().getProjectDirectory().dir(t.getHeader().get().getAsFile().getParentFile().getAbsolutePath())), t.getIncludes().get().stream()))
+                        .distinct()
+                        .toList()));
+                    task.getDefinedMacros().convention(members.map(tasks -> tasks.stream().flatMap(t -> t.getDefinedMacros().get().stream()).distinct().toList()));
+                    task.getTargetPackage().convention(group.getTargetPackage().orElse(members.flatMap(tasks -> tasks.getFirst().getTargetPackage())));
+                    task.getHeaderClassName().convention(group.getHeaderClassName().orElse(members.flatMap(tasks -> tasks.getFirst().getHeaderClassName())));
+                    task.getWhitelistFile().convention(whitelistTask.flatMap(JextractWhitelistTask::getArgFile));
+                    task.getManifest().convention(project.getLayout().getBuildDirectory().file("jextract/groups/" + group.getName() + "/manifest.properties"));
+                    task.getLibraries().convention(members.map(tasks -> tasks.stream().flatMap(t -> t.getLibraries().get().stream()).distinct().toList()));
+                    task.getUseSystemLoadLibrary().convention(agreed(group.getName(), members, "useSystemLoadLibrary", JextractGenerateTask::getUseSystemLoadLibrary));
+                    task.getGenerateSourceFiles().convention(agreed(group.getName(), members, "generateSourceFiles", JextractGenerateTask::getGenerateSourceFiles));
+                    task.getNormalizeOutput().convention(agreed(group.getName(), members, "normalizeOutput", JextractGenerateTask::getNormalizeOutput));
+                    task.getCriticalFunctions().convention(members.map(tasks -> {
+                        final Map<String, Boolean> functions = new TreeMap<>();
+                        tasks.forEach(t -> functions.putAll(t.getCriticalFunctions().get()));
+                        return functions;
+                    }));
+                    task.getSources().convention(project.getLayout().getBuildDirectory().dir("jextract/groups/" + group.getName() + "/sources"));
+                    task.getClasses().convention(project.getLayout().getBuildDirectory().dir("jextract/groups/" + group.getName() + "/classes"));
+                    task.getSymbols().convention(project.getLayout().getBuildDirectory().file("jextract/groups/" + group.getName() + "/symbols.txt"));
                 });
             });
 
@@ -204,14 +449,54 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
                 s.getExtensions().add(SourceSetExtension.EXTENSION_NAME, sourceSetExtension);
                 sourceSetExtension.getLibraries().all(lib -> {
                     final TaskProvider<@NonNull JextractGenerateTask> task = project.getTasks().named(lib.getGenerateBindingsTaskName(), JextractGenerateTask.class);
-                    s.getJava().srcDir(task.flatMap(JextractGenerateTask::getSources));
-                    s.getResources().srcDir(task.flatMap(JextractGenerateTask::getSources));
-                    final FileCollection classes = project.getLayout().files(task.flatMap(JextractGenerateTask::getClasses));
+                    final TaskProvider<@NonNull JavaCompile> compileTask = project.getTasks().named(lib.getCompileBindingsTaskName(), JavaCompile.class);
+                    final TaskProvider<@NonNull JavaCompile> compileUsedTask = project.getTasks().named(lib.getCompileUsedBindingsTaskName(), JavaCompile.class);
+                    final FileCollection sources = project.getObjects().fileCollection()
+                        .from(lib.getPruneUnusedBindings().map(prune -> prune ? List.of() : List.of(task.flatMap(JextractGenerateTask::getSources))));
+                    s.getJava().srcDir(sources);
+                    s.getResources().srcDir(sources);
+                    final FileCollection classes = project.getObjects().fileCollection()
+                        .from(task.map(t -> t.getJar().isPresent() ? t.getJar().get() : t.getClasses().get()))
+                        .from(lib.getPruneUnusedBindings().map(prune -> prune ? List.of(compileTask.flatMap(JavaCompile::getDestinationDirectory)) : List.of()))
+                        .builtBy(task);
+                    final Provider<@NonNull TaskProvider<@NonNull JextractGenerateTask>> runtimeTask = lib.getPruneUnusedBindings()
+                        .map(prune -> prune ? project.getTasks().named(lib.getGenerateUsedBindingsTaskName(), JextractGenerateTask.class) : task);
+                    final FileCollection usedClasses = project.getObjects().fileCollection()
+                        .from(lib.getPruneUnusedBindings().map(prune -> prune ? List.of(compileUsedTask.flatMap(JavaCompile::getDestinationDirectory)) : List.of()));
+                    final FileCollection runtimeClasses = project.getObjects().fileCollection()
+                        .from(runtimeTask.flatMap(it -> it.map(t -> t.getJar().isPresent() ? t.getJar().get() : t.getClasses().get())))
+                        .from(usedClasses)
+                        .builtBy(runtimeTask);
+                    project.getTasks().withType(Jar.class).matching(jar -> jar.getName().equals(s.getJarTaskName())).configureEach(jar -> jar.from(usedClasses));
+                    project.getTasks().named(lib.getDeriveWhitelistTaskName(), JextractDeriveWhitelistTask.class, t -> t.getConsumerClasses().from(s.getOutput().getClassesDirs()));
+                    final TaskProvider<@NonNull JextractBundleNativesTask> bundleTask = project.getTasks().named(lib.getBundleNativesTaskName(), JextractBundleNativesTask.class);
+                    s.getJava().srcDir(lib.getBundleNatives().flatMap(bundle -> bundle ? bundleTask.flatMap(JextractBundleNativesTask::getSources).map(List::of) : project.getProviders().provider(List::of)));
+                    s.getResources().srcDir(lib.getBundleNatives().flatMap(bundle -> bundle ? bundleTask.flatMap(JextractBundleNativesTask::getResources).map(List::of) : project.getProviders().provider(List::of)));
+                    // The binaries of the current platform are published separately, but the project's own code needs them at runtime.
+                    final String platformBundleTaskName = lib.getBundleNativesTaskName(Platform.getCurrentPlatform());
+                    final FileCollection platformNatives = project.getObjects().fileCollection().from(project.getProviders().provider(() -> project.getTasks().getNames().contains(platformBundleTaskName)
+                        ? List.of(project.getTasks().named(platformBundleTaskName, JextractBundleNativesTask.class).flatMap(JextractBundleNativesTask::getResources))
+                        : List.of()));
+                    s.setRuntimeClasspath(s.getRuntimeClasspath().plus(platformNatives));
                     s.setCompileClasspath(s.getCompileClasspath().plus(classes));
-                    s.setRuntimeClasspath(s.getRuntimeClasspath().plus(classes));
+                    s.setRuntimeClasspath(s.getRuntimeClasspath().plus(runtimeClasses));
                 });
             });
-            javaExtension.getSourceSets().named("main", s -> configureJmod(project, s));
+            extension.getLibraries().configureEach(lib -> {
+                lib.getPlatforms().configureEach(platform -> {
+                    configureNativesVariant(project, lib, platform);
+                    // Only projects publishing platform variants request the current platform explicitly, others rely on the disambiguation rules.
+                    javaExtension.getSourceSets().configureEach(s -> project.getConfigurations().named(s.getRuntimeClasspathConfigurationName(), config -> config.attributes(a -> platformAttributes(project, a, Platform.getCurrentPlatform()))));
+                });
+                // Consumers need the binaries of their platform, attribute matching picks the variant, so the published metadata doesn't depend on the build machine.
+                project.getConfigurations().named(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME, config -> config.getDependencies().addAllLater(project.getProviders().provider(() -> {
+                    if (lib.getPlatforms().isEmpty()) return List.of();
+                    final ProjectDependency natives = project.getDependencyFactory().create(project);
+                    natives.capabilities(c -> c.requireFeature(lib.getName() + "-natives"));
+                    return List.of(natives);
+                })));
+            });
+            javaExtension.getSourceSets().named("main", s -> configureJmod(project, s, directoryIndex));
             project.getTasks().withType(Test.class, task -> {
                 task.getJvmArgumentProviders().add(libraryPathProvider);
             });
@@ -237,12 +522,24 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
     @Inject
     protected abstract JavaToolchainService getJavaToolchainService();
 
-    private void configureJmod(Project project, SourceSet sourceSet) {
+    /// The value of a setting all members of a generation group must agree on, fails if they conflict
+    private static <T> Provider<T> agreed(String group, Provider<@NonNull List<@NonNull JextractGenerateTask>> members, String setting, Function<JextractGenerateTask, Provider<T>> getter) {
+        return members.map(tasks -> {
+            final Map<String, @Nullable T> values = new LinkedHashMap<>();
+            tasks.forEach(t -> values.put(t.getName(), getter.apply(t).getOrNull()));
+            if (new HashSet<>(values.values()).size() > 1) {
+                throw new GradleException(String.format("The libraries of the %s generation group must agree on %s, but their generate tasks have %s", group, setting, values));
+            }
+            return values.isEmpty() ? null : values.values().iterator().next();
+        });
+    }
+
+    private void configureJmod(Project project, SourceSet sourceSet, Provider<@NonNull DirectoryIndexService> directoryIndex) {
         final JavaPluginExtension javaExtension = project.getExtensions().getByType(JavaPluginExtension.class);
         final Provider<@NonNull JavaLanguageVersion> javaVersion = javaExtension.getToolchain().getLanguageVersion()
             .orElse(JavaLanguageVersion.of(Objects.requireNonNullElse(Jvm.current().getJavaVersionMajor(), 25)));
 
-        final Provider<@NonNull Boolean> isModularProject = sourceSet.getJava().getSourceDirectories().filter(this::isModule).getElements().map(e -> !e.isEmpty());
+        final Provider<@NonNull Boolean> isModularProject = sourceSet.getJava().getSourceDirectories().filter(file -> isModule(file, directoryIndex.get().getIndex())).getElements().map(e -> !e.isEmpty());
         final TaskProvider<@NonNull Jar> jarTask = project.getTasks().named(sourceSet.getJarTaskName(), Jar.class);
         final TaskProvider<@NonNull JmodCreateTask> createJmodTask = project.getTasks().register(sourceSet.getTaskName("create", "Jmod"), JmodCreateTask.class, task -> {
             task.setGroup("build");
@@ -272,20 +569,83 @@ public abstract class GradleJextractPlugin implements Plugin<@NonNull Project> {
         sourceSetExtension.getLibraries().all(lib -> {
             createJmodTask.configure(task -> {
                 task.getHeaderFiles().from(lib.getIncludes(), project.getConfigurations().named(lib.getName() + "HeaderDirectories"));
-                task.getLibs().from(lib.getLibraryPath(), project.getConfigurations().named(lib.getName() + "LibraryPath"));
+                task.getLibs().from(lib.getLibraryPath(), currentPlatformLibraryPath(project, lib), project.getConfigurations().named(lib.getName() + "LibraryPath"));
                 task.getLegalNotices().from(lib.getLegalNotices());
             });
         });
     }
 
-    private boolean isModule(File file) {
+    private void configureNativesVariant(Project project, LibraryHandler lib, PlatformHandler handler) {
+        final Platform platform = handler.getPlatform();
+        final TaskProvider<@NonNull JextractBundleNativesTask> bundleTask = project.getTasks().register(lib.getBundleNativesTaskName(platform), JextractBundleNativesTask.class, task -> {
+            task.setDescription("Bundles the native binaries of the " + lib.getName() + " library for " + platform.getId());
+            task.getBinaries().from(handler.getLibraryPath());
+            task.getLibraries().convention(lib.getLibraries());
+            task.getLibraryName().convention(lib.getName());
+            task.getPlatform().convention(platform.getId());
+            task.getTargetPackage().convention("");
+            task.getSources().convention(project.getLayout().getBuildDirectory().dir("jextract/" + lib.getName() + "/natives-" + platform.getId()));
+            task.getResources().convention(project.getLayout().getBuildDirectory().dir("generated/resources/jextract-natives/" + lib.getName() + "-" + platform.getId()));
+        });
+        final TaskProvider<@NonNull Jar> jarTask = project.getTasks().register(lib.getNativesJarTaskName(platform), Jar.class, task -> {
+            task.setGroup("build");
+            task.setDescription("Assembles a jar containing the native binaries of the " + lib.getName() + " library for " + platform.getId());
+            task.from(bundleTask.flatMap(JextractBundleNativesTask::getResources));
+            task.getArchiveClassifier().convention(lib.getName() + "-natives-" + platform.getId());
+        });
+        final NamedDomainObjectProvider<@NonNull ConsumableConfiguration> elements = project.getConfigurations().consumable(lib.getNativesElementsConfigurationName(platform), config -> {
+            config.setDescription(String.format("The native binaries of the %s library for %s", lib.getName(), platform.getId()));
+            config.attributes(a -> {
+                a.attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+                a.attribute(Category.CATEGORY_ATTRIBUTE, project.getObjects().named(Category.class, Category.LIBRARY));
+                a.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, project.getObjects().named(LibraryElements.class, LibraryElements.JAR));
+                a.attribute(Bundling.BUNDLING_ATTRIBUTE, project.getObjects().named(Bundling.class, Bundling.EXTERNAL));
+                platformAttributes(project, a, platform);
+            });
+            config.getOutgoing().capability(project.getProviders().provider(() -> project.getGroup() + ":" + nativesModuleName(project, lib) + ":" + project.getVersion()));
+            config.getOutgoing().artifact(jarTask);
+        });
+        project.getComponents().named("java", AdhocComponentWithVariants.class, component -> component.addVariantsFromConfiguration(elements.get(), ConfigurationVariantDetails::mapToOptional));
+        // Only Gradle Module Metadata can select a variant by platform, the POM merely lists the jars as classified artifacts.
+        project.getPluginManager().withPlugin("maven-publish", publishPlugin -> project.getExtensions().getByType(PublishingExtension.class).getPublications().withType(MavenPublication.class).configureEach(publication -> {
+            publication.suppressPomMetadataWarningsFor(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME);
+            publication.suppressPomMetadataWarningsFor(elements.getName());
+        }));
+    }
+
+    private static String nativesModuleName(Project project, LibraryHandler lib) {
+        return project.getName() + "-" + lib.getName() + "-natives";
+    }
+
+    private static void platformAttributes(Project project, AttributeContainer attributes, Platform platform) {
+        attributes.attribute(OperatingSystemFamily.OPERATING_SYSTEM_ATTRIBUTE, project.getObjects().named(OperatingSystemFamily.class, operatingSystemFamily(platform)));
+        attributes.attribute(MachineArchitecture.ARCHITECTURE_ATTRIBUTE, project.getObjects().named(MachineArchitecture.class, machineArchitecture(platform)));
+    }
+
+    private static String operatingSystemFamily(Platform platform) {
+        return switch (platform.operatingSystem()) {
+            case WINDOWS -> OperatingSystemFamily.WINDOWS;
+            case MAC -> OperatingSystemFamily.MACOS;
+            case LINUX -> OperatingSystemFamily.LINUX;
+        };
+    }
+
+    private static String machineArchitecture(Platform platform) {
+        return switch (platform.architecture()) {
+            case AARCH64 -> MachineArchitecture.ARM64;
+            case X64 -> MachineArchitecture.X86_64;
+        };
+    }
+
+    private static Provider<@NonNull List<@NonNull Directory>> currentPlatformLibraryPath(Project project, LibraryHandler lib) {
+        return project.getProviders().provider(() -> {
+            final PlatformHandler platform = lib.getPlatforms().findByName(Platform.getCurrentPlatform().getId());
+            return platform == null ? List.of() : platform.getLibraryPath().get();
+        });
+    }
+
+    private static boolean isModule(File file, DirectoryIndex index) {
         if (file.isFile() && file.getName().endsWith(".jmod")) return true;
-        if (!file.isDirectory()) return false;
-        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:**/module-info.{class,java}");
-        try (var stream = Files.walk(file.toPath(), 2)) {
-            return stream.anyMatch(matcher::matches);
-        } catch (Exception ignored) {
-            return false;
-        }
+        return index.containsModuleDescriptor(file.toPath());
     }
 }
@@ -0,0 +1,44 @@
+package de.infolektuell.gradle.jextract.extensions;
+
+import org.gradle.api.Named;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.jspecify.annotations.NonNull;
+
+import java.util.regex.Pattern;
+
+/// A group of libraries whose bindings are generated in a single Jextract run
+///
+/// Jextract parses an umbrella header including all member headers once, so headers shared by the members are only parsed once.
+/// The generated files are split back into the output directories of the member libraries.
+/// All members share the target package, and the header class with functions, constants, and variables belongs to the first member.
+public abstract class GenerationGroupHandler implements Named {
+    /// Used by Gradle
+    public GenerationGroupHandler() { super(); }
+
+    /// The names of the member libraries, the first one is the primary member
+    /// @return A property to add library names
+    public abstract ListProperty<@NonNull String> getLibraries();
+
+    /// The package name for the generated code of all members, defaults to the primary member's package
+    /// @return A property to configure the package name
+    public abstract Property<@NonNull String> getTargetPackage();
+
+    /// The name for the header class of the group, defaults to the primary member's header class name or else is derived from the group name
+    /// @return A property to configure the header class name
+    public abstract Property<@NonNull String> getHeaderClassName();
+
+    /// The name of the task that generates the bindings for the whole group
+    /// @return The task name
+    public String getGenerateBindingsTaskName() { return "generate" + capitalize(getName()) + "GroupBindings"; }
+
+    /// The name of the task that writes the whitelist of this group into an arg file
+    /// @return The task name
+    public String getWriteWhitelistTaskName() { return "write" + capitalize(getName()) + "GroupWhitelist"; }
+
+    /// The name of the task that writes the umbrella header of the group
+    /// @return The task name
+    public String getUmbrellaHeaderTaskName() { return "write" + capitalize(getName()) + "UmbrellaHeader"; }
+
+    private String capitalize(String input) { return Pattern.compile("^.").matcher(input).replaceFirst(m -> m.group().toUpperCase()); }
+}
@@ -0,0 +1,25 @@
+package de.infolektuell.gradle.jextract.extensions;
+
+import org.gradle.api.provider.Property;
+import org.jspecify.annotations.NonNull;
+
+/// A configuration for JFR events recorded by the generated bindings of a library (Jextract 22 and above)
+///
+/// If enabled, each downcall and upcall emits a `jextract.Downcall` or `jextract.Upcall` event with the function name and its duration.
+/// The events are only recorded while a JFR recording enables them, otherwise the overhead is a check per call.
+public abstract class InstrumentationHandler {
+    /// Used by Gradle
+    public InstrumentationHandler() { super(); }
+
+    /// Whether the generated bindings record JFR events, disabled by default
+    /// @return A boolean property
+    public abstract Property<@NonNull Boolean> getEnabled();
+
+    /// The default duration threshold of the events, e.g., `1 ms`, a recording's settings can still override it
+    /// @return A property to configure the threshold
+    public abstract Property<@NonNull String> getThreshold();
+
+    /// Only one of this many calls is measured, which keeps the overhead low for functions that are called very often
+    /// @return A property to configure the sampling rate
+    public abstract Property<@NonNull Integer> getSampling();
+}
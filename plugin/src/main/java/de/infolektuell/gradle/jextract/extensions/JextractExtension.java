@@ -16,11 +16,13 @@ public abstract class JextractExtension {
     ///  The name that is used to register the extension
     public static final String EXTENSION_NAME = "jextract";
     private final NamedDomainObjectContainer<@NonNull LibraryHandler> libraries;
+    private final NamedDomainObjectContainer<@NonNull GenerationGroupHandler> groups;
 
     /// Used by Gradle
     public JextractExtension() {
         super();
         this.libraries = getObjects().domainObjectContainer(LibraryHandler.class);
+        this.groups = getObjects().domainObjectContainer(GenerationGroupHandler.class);
     }
 
     /// Configuration of a Jextract installation to be used by the plugin
@@ -45,6 +47,18 @@ public abstract class JextractExtension {
         action.execute(this.libraries);
     }
 
+    /// Groups of libraries whose bindings are generated together in a single Jextract run
+    /// @return a container to register generation groups
+    public final NamedDomainObjectContainer<@NonNull GenerationGroupHandler> getGroups() {
+        return this.groups;
+    }
+
+    /// Configures the groups of libraries whose bindings are generated together in a single Jextract run
+    /// @param action A configuration action that is applied to the groups container
+    public final void groups(@NonNull Action<@NonNull NamedDomainObjectContainer<@NonNull GenerationGroupHandler>> action) {
+        action.execute(this.groups);
+    }
+
     /// specify the directory to place generated files of all libraries by default
     /// @return a property
     public abstract DirectoryProperty getOutput();
@@ -1,7 +1,9 @@
 package de.infolektuell.gradle.jextract.extensions;
 
+import de.infolektuell.gradle.jextract.model.Platform;
 import org.gradle.api.Action;
 import org.gradle.api.Named;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
@@ -10,7 +12,9 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Nested;
 import org.jspecify.annotations.NonNull;
 
+import java.util.Arrays;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /// A configuration for a library to be generated by Jextract
 public abstract class LibraryHandler implements Named {
@@ -38,6 +42,19 @@ public abstract class LibraryHandler implements Named {
     /// @return A property to add more library search directories
     public abstract ListProperty<@NonNull Directory> getLibraryPath();
 
+    /// The native binaries for each platform, e.g., `linux-x64`, which are published as separate runtime variants
+    ///
+    /// Consumers only resolve the variant matching their operating system and architecture, so they don't download or bundle the binaries of other platforms.
+    /// The binaries of the current platform are also added to the library path.
+    /// @return a container to register platforms
+    public abstract NamedDomainObjectContainer<@NonNull PlatformHandler> getPlatforms();
+
+    /// Configures the native binaries for each platform
+    /// @param action A configuration action that is applied to the platforms container
+    public final void platforms(Action<? super @NonNull NamedDomainObjectContainer<@NonNull PlatformHandler>> action) {
+        action.execute(getPlatforms());
+    }
+
     /// Directories containing legal notice documents, to be included in the JMOD archive
     /// @return A property to add legal documents directories
     public abstract ListProperty<@NonNull Directory> getLegalNotices();
@@ -65,6 +82,17 @@ public abstract class LibraryHandler implements Named {
         action.execute(this.getWhitelist());
     }
 
+    /// JFR events for the downcalls and upcalls of the generated bindings
+    /// @return A handler to configure the instrumentation
+    @Nested
+    public abstract InstrumentationHandler getInstrumentation();
+
+    /// Configurable block for the JFR instrumentation
+    /// @param action The configuration action to be applied to the instrumentation
+    public final void instrumentation(Action<? super @NonNull InstrumentationHandler> action) {
+        action.execute(this.getInstrumentation());
+    }
+
     /// Native libraries to be loaded by generated code (either names or paths starting with colon)
     /// @return A property to add library names
     public abstract ListProperty<@NonNull String> getLibraries();
@@ -81,13 +109,117 @@ public abstract class LibraryHandler implements Named {
     /// @return a boolean property
     public abstract Property<@NonNull Boolean> getGenerateSourceFiles();
 
+    /// Record which headers are reachable from the library header by include directives, so up-to-date and build cache checks only fingerprint these instead of whole include directories
+    ///
+    /// The include directives are scanned again in each build. This pays off if the include directories contain many unrelated headers, e.g., a system SDK.
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getTrackIncludedHeaders();
+
+    /// Package the generated classes into a single jar that is added to the classpath instead of a directory of class files
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getPackageAsJar();
+
+    /// Normalize the generated files, so identical inputs result in identical bytes on every machine
+    ///
+    /// Source files get Unix line endings, machine-specific paths are removed from comments, and all files get a constant modification time.
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getNormalizeOutput();
+
+    /// The number of concurrent Jextract runs that generate the bindings of this library, useful for very large headers
+    ///
+    /// Structs and unions are spread over the shards, all other symbols are generated by the first one.
+    /// @return an integer property
+    public abstract Property<@NonNull Integer> getShards();
+
+    /// Expand the whitelist with the structs, unions, and typedefs its symbols depend on, and fail early for symbols the header doesn't declare
+    ///
+    /// This costs an additional `--dump-includes` run to build the symbol index of the header.
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getExpandWhitelist();
+
+    /// Generate a second set of bindings with only the symbols the consuming source sets use, which replaces the full bindings on the runtime classpath and in the jar
+    ///
+    /// Code is still compiled against the full bindings, so the used symbols can be derived from the compiled classes.
+    /// Generated sources are compiled separately instead of with the source set, so the full bindings don't end up in its output.
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getPruneUnusedBindings();
+
+    /// Check that the native binaries in the library path export all whitelisted functions and variables before generating the bindings
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getVerifyExports();
+
+    /// Bundle the native binaries from the library path as resources, and generate a `<HeaderClass>Natives` class that loads them
+    ///
+    /// The loader extracts each binary once into a cache per user, keyed by its content hash, so later starts don't copy it again.
+    /// @return a boolean property
+    public abstract Property<@NonNull Boolean> getBundleNatives();
+
     /// The name of the task that generates the bindings for this library
     /// @return The task name
     public String getGenerateBindingsTaskName() { return "generate" + capitalize(getName()) + "Bindings"; }
 
+    /// The name of the task that writes the whitelist of this library into an arg file
+    /// @return The task name
+    public String getWriteWhitelistTaskName() { return "write" + capitalize(getName()) + "Whitelist"; }
+
+    /// The name of the task that checks the whitelist of this library against the symbol index
+    /// @return The task name
+    public String getValidateWhitelistTaskName() { return "validate" + capitalize(getName()) + "Whitelist"; }
+
+    /// The name of the task that expands the whitelist of this library with the dependencies of its symbols
+    /// @return The task name
+    public String getExpandWhitelistTaskName() { return "expand" + capitalize(getName()) + "Whitelist"; }
+
+    /// The name of the task that derives the whitelist of this library from the classes using its bindings
+    /// @return The task name
+    public String getDeriveWhitelistTaskName() { return "derive" + capitalize(getName()) + "Whitelist"; }
+
+    /// The name of the task that generates the bindings for the used symbols of this library
+    /// @return The task name
+    public String getGenerateUsedBindingsTaskName() { return "generate" + capitalize(getName()) + "UsedBindings"; }
+
+    /// The name of the task that compiles the generated sources of this library if unused bindings are pruned
+    /// @return The task name
+    public String getCompileBindingsTaskName() { return "compile" + capitalize(getName()) + "Bindings"; }
+
+    /// The name of the task that compiles the generated sources for the used symbols of this library
+    /// @return The task name
+    public String getCompileUsedBindingsTaskName() { return "compile" + capitalize(getName()) + "UsedBindings"; }
+
+    /// The name of the task that checks the exported symbols of the native binaries of this library
+    /// @return The task name
+    public String getVerifyExportsTaskName() { return "verify" + capitalize(getName()) + "Exports"; }
+
+    /// The name of the task that bundles the native binaries of this library with a loader
+    /// @return The task name
+    public String getBundleNativesTaskName() { return "bundle" + capitalize(getName()) + "Natives"; }
+
     /// The name of the task that dumps the includes for this library
     /// @return The task name
     public String getDumpIncludesTaskName() { return "dump" + capitalize(getName()) + "Includes"; }
 
+    /// The name of the task that records the headers reachable from the header of this library
+    /// @return The task name
+    public String getRecordIncludedHeadersTaskName() { return "record" + capitalize(getName()) + "IncludedHeaders"; }
+
+    /// The name of the task that bundles the native binaries of this library for a platform
+    /// @param platform The platform
+    /// @return The task name
+    public String getBundleNativesTaskName(Platform platform) { return getBundleNativesTaskName() + platformSuffix(platform); }
+
+    /// The name of the task that packages the native binaries of this library for a platform into a jar
+    /// @param platform The platform
+    /// @return The task name
+    public String getNativesJarTaskName(Platform platform) { return getName() + "Natives" + platformSuffix(platform) + "Jar"; }
+
+    /// The name of the consumable configuration publishing the native binaries of this library for a platform
+    /// @param platform The platform
+    /// @return The configuration name
+    public String getNativesElementsConfigurationName(Platform platform) { return getName() + "Natives" + platformSuffix(platform) + "RuntimeElements"; }
+
+    private String platformSuffix(Platform platform) {
+        return Arrays.stream(platform.getId().split("-")).map(this::capitalize).collect(Collectors.joining());
+    }
+
     private String capitalize(String input) { return Pattern.compile("^.").matcher(input).replaceFirst(m -> m.group().toUpperCase()); }
 }
@@ -0,0 +1,24 @@
+package de.infolektuell.gradle.jextract.extensions;
+
+import de.infolektuell.gradle.jextract.model.Platform;
+import org.gradle.api.Named;
+import org.gradle.api.file.Directory;
+import org.gradle.api.provider.ListProperty;
+import org.jspecify.annotations.NonNull;
+
+/// The native binaries of a library for a single platform, published as a separate runtime variant
+///
+/// The name is a platform identifier like `linux-x64`, `mac-aarch64`, or `windows-x64`.
+public abstract class PlatformHandler implements Named {
+    /// Used by Gradle
+    public PlatformHandler() { super(); }
+
+    /// The platform this handler describes, parsed from its name
+    /// @return The platform
+    /// @throws IllegalArgumentException if the name isn't a known platform identifier
+    public Platform getPlatform() { return Platform.of(getName()); }
+
+    /// Directories containing the native binaries for this platform
+    /// @return A property to add library search directories
+    public abstract ListProperty<@NonNull Directory> getLibraryPath();
+}
@@ -1,6 +1,7 @@
 package de.infolektuell.gradle.jextract.extensions;
 
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.SetProperty;
 import org.jspecify.annotations.NonNull;
 
@@ -33,6 +34,38 @@ public abstract class WhitelistHandler {
     /// @return A set property to configure the variables
     public abstract SetProperty<@NonNull String> getVariables();
 
+    /// Functions whose downcall handles are linked with `Linker.Option.critical` (Jextract 22 and above), they are included like [functions][#getFunctions()]
+    ///
+    /// Critical functions skip the thread state transition, so they should be short, must not block, and must not call back into Java.
+    /// The value of each entry denotes whether the function may access heap memory segments, e.g., Java arrays without copying.
+    /// @return A map property to add function names
+    public abstract MapProperty<@NonNull String, @NonNull Boolean> getCriticalFunctions();
+
+    /// Includes a function and links its downcall handle with `Linker.Option.critical`, without heap access
+    /// @param name The function name
+    public final void critical(String name) {
+        critical(name, false);
+    }
+
+    /// Includes a function and links its downcall handle with `Linker.Option.critical`
+    /// @param name The function name
+    /// @param allowHeapAccess Whether the function may access heap memory segments
+    public final void critical(String name, boolean allowHeapAccess) {
+        getCriticalFunctions().put(name, allowHeapAccess);
+    }
+
+    /// Functions that may block, e.g., for I/O, which get asynchronous wrappers in a `<HeaderClass>Async` class (Jextract 22 and above), they are included like [functions][#getFunctions()]
+    ///
+    /// The wrappers return a `CompletableFuture` and run the call on a bounded pool of platform threads, so virtual threads don't pin their carrier threads.
+    /// @return A set property to add function names
+    public abstract SetProperty<@NonNull String> getBlockingFunctions();
+
+    /// Includes a function and generates an asynchronous wrapper for it
+    /// @param name The function name
+    public final void blocking(String name) {
+        getBlockingFunctions().add(name);
+    }
+
     /// A file containing all includes as args, maybe generated by --dump-includes
     /// @return A property to configure the arg file
     public abstract RegularFileProperty getArgFile();
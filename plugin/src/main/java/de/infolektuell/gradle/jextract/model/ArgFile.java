@@ -0,0 +1,86 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/// The include options of a Jextract arg file, e.g., written by `--dump-includes`
+///
+/// Each line like `--include-function foo    # header: /usr/include/foo.h` becomes an entry.
+/// Comments and other options are ignored.
+/// @param entries The include options in file order
+public record ArgFile(List<Entry> entries) {
+    private static final Pattern entryPattern = Pattern.compile("^\\s*--include-(?<kind>[a-z]+)\\s+(?<name>[^\\s#]+)(?:\\s*#\\s*header:\\s*(?<header>.*?))?\\s*$");
+
+    /// A single include option
+    /// @param kind The symbol's kind, e.g., function, struct, or typedef
+    /// @param name The symbol's name
+    /// @param header The header file declaring the symbol, if known
+    public record Entry(String kind, String name, @Nullable String header) {
+        /// Formats this entry as a line of an arg file
+        /// @return The formatted line
+        public String toLine() {
+            final String option = "--include-" + kind + " " + name;
+            return header == null ? option : option + "    # header: " + header;
+        }
+    }
+
+    /// Parses the content of an arg file
+    /// @param content The text content
+    /// @return The parsed arg file
+    public static ArgFile parse(String content) {
+        return new ArgFile(content.lines()
+            .map(entryPattern::matcher)
+            .filter(java.util.regex.Matcher::matches)
+            .map(m -> new Entry(m.group("kind"), m.group("name"), m.group("header")))
+            .toList());
+    }
+
+    /// Reads and parses an arg file
+    /// @param path The arg file
+    /// @return The parsed arg file
+    /// @throws IOException if the file can't be read
+    public static ArgFile read(Path path) throws IOException {
+        return parse(Files.readString(path));
+    }
+
+    /// Creates an arg file from symbols grouped by their kind, e.g., a whitelist
+    /// @param symbols Symbol names by kind
+    /// @return The arg file containing all symbols, sorted by kind and name
+    public static ArgFile of(Map<String, ? extends Collection<String>> symbols) {
+        return new ArgFile(new TreeMap<>(symbols).entrySet().stream()
+            .flatMap(e -> e.getValue().stream().sorted().map(name -> new Entry(e.getKey(), name, null)))
+            .toList());
+    }
+
+    /// All header files declaring at least one of the symbols
+    /// @return The set of absolute, normalized header paths
+    public Set<Path> headers() {
+        return entries.stream()
+            .map(Entry::header)
+            .filter(Objects::nonNull)
+            .map(it -> Path.of(it).toAbsolutePath().normalize())
+            .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /// Groups the symbol names by their kind
+    /// @return A sorted map of kinds to sorted symbol names
+    public SortedMap<String, SortedSet<String>> symbols() {
+        final SortedMap<String, SortedSet<String>> result = new TreeMap<>();
+        entries.forEach(e -> result.computeIfAbsent(e.kind(), k -> new TreeSet<>()).add(e.name()));
+        return result;
+    }
+
+    /// Writes the entries as an arg file
+    /// @param path The file to write
+    /// @throws IOException if the file can't be written
+    public void write(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.write(path, entries.stream().map(Entry::toLine).toList());
+    }
+}
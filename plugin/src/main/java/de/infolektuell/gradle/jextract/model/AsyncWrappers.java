@@ -0,0 +1,154 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/// Generates a companion class with asynchronous wrappers for blocking functions in bindings generated by Jextract 22 and above
+///
+/// A blocking downcall pins the carrier thread of a virtual thread, so the wrappers offload the calls to a bounded pool of platform threads per library.
+/// Each wrapper has the signature of the function in the header class, but returns a `CompletableFuture` of its result.
+/// Functions returning structs by value get their result allocated in a per-call automatic arena instead of taking an allocator.
+/// @param packageName The package of the generated bindings, empty for the unnamed package
+/// @param headerClassName The header class name
+/// @param functions The names of the blocking functions
+public record AsyncWrappers(String packageName, String headerClassName, SortedSet<String> functions) {
+    private static final Pattern methodPattern = Pattern.compile("public\\s+static\\s+(?<type>[\\w$.\\[\\]]+)\\s+(?<name>[A-Za-z_$][\\w$]*)\\s*\\((?<params>[^()]*)\\)\\s*\\{");
+    private static final Map<String, String> boxes = Map.of(
+        "boolean", "Boolean", "byte", "Byte", "char", "Character", "short", "Short",
+        "int", "Integer", "long", "Long", "float", "Float", "double", "Double"
+    );
+
+    /// A function of the header class
+    /// @param returnType The Java return type, `void` if there is no result
+    /// @param name The function name
+    /// @param parameters The parameter types and names in declaration order, e.g., `int device`
+    public record Signature(String returnType, String name, List<String> parameters) {
+        /// Checks if the function returns a struct by value, so Jextract added an allocator as first parameter
+        /// @return True if the first parameter is a `SegmentAllocator`
+        public boolean isAllocating() {
+            return !parameters.isEmpty() && parameters.getFirst().startsWith("SegmentAllocator ");
+        }
+    }
+
+    /// Creates an instance for the given functions
+    /// @param packageName The package of the generated bindings, empty for the unnamed package
+    /// @param headerClassName The header class name
+    /// @param functions The names of the blocking functions
+    /// @return The new instance
+    public static AsyncWrappers of(String packageName, String headerClassName, Collection<String> functions) {
+        return new AsyncWrappers(packageName, headerClassName, new TreeSet<>(functions));
+    }
+
+    /// The simple name of the generated companion class
+    /// @return The header class name with an `Async` suffix
+    public String className() {
+        return headerClassName + "Async";
+    }
+
+    /// Reads the signatures of the blocking functions from the header class and writes the companion class next to it
+    /// @param root The directory containing the generated sources
+    /// @return The names of the wrapped functions, variadic and missing functions are skipped
+    /// @throws IOException if a file can't be read or written
+    public SortedSet<String> apply(Path root) throws IOException {
+        final Path dir = packageName.isEmpty() ? root : root.resolve(packageName.replace('.', '/'));
+        final Path companion = dir.resolve(className() + ".java");
+        Files.deleteIfExists(companion);
+        final Map<String, Signature> signatures = new TreeMap<>();
+        if (functions.isEmpty() || !Files.isDirectory(dir)) return new TreeSet<>();
+        final List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(it -> it.getFileName().toString().endsWith(".java") && ShardPlan.isHeaderClassFile(it.getFileName().toString(), headerClassName)).sorted().toList();
+        }
+        for (Path file : files) {
+            signatures(Files.readString(file, StandardCharsets.UTF_8)).forEach(it -> signatures.putIfAbsent(it.name(), it));
+        }
+        if (signatures.isEmpty()) return new TreeSet<>();
+        Files.writeString(companion, source(signatures.values()), StandardCharsets.UTF_8);
+        return new TreeSet<>(signatures.keySet());
+    }
+
+    /// Finds the blocking functions in the source of a header class
+    /// @param source The source code
+    /// @return The signatures of the non-variadic blocking functions
+    public List<Signature> signatures(String source) {
+        final List<Signature> result = new ArrayList<>();
+        final Matcher matcher = methodPattern.matcher(source);
+        while (matcher.find()) {
+            final String name = matcher.group("name");
+            final String params = matcher.group("params").trim();
+            if (!functions.contains(name) || params.contains("...")) continue;
+            final List<String> parameters = params.isEmpty() ? List.of() : Arrays.stream(params.split(",")).map(it -> it.trim().replaceAll("\\s+", " ")).toList();
+            result.add(new Signature(matcher.group("type"), name, parameters));
+        }
+        return result;
+    }
+
+    /// Generates the source of the companion class
+    /// @param signatures The functions to wrap
+    /// @return The Java source code
+    public String source(Collection<Signature> signatures) {
+        final StringBuilder methods = new StringBuilder();
+        for (Signature signature : signatures) {
+            final List<String> parameters = signature.isAllocating() ? signature.parameters().subList(1, signature.parameters().size()) : signature.parameters();
+            final String arguments = Stream.concat(
+                signature.isAllocating() ? Stream.of("Arena.ofAuto()") : Stream.empty(),
+                parameters.stream().map(it -> it.substring(it.lastIndexOf(' ') + 1))
+            ).collect(Collectors.joining(", "));
+            final String call = headerClassName + "." + signature.name() + "(" + arguments + ")";
+            final boolean isVoid = signature.returnType().equals("void");
+            final String resultType = isVoid ? "Void" : boxes.getOrDefault(signature.returnType(), signature.returnType());
+            methods.append("""
+
+                    /**
+                     * Calls {@link %1$s#%2$s} on the blocking executor.
+                     */
+                    public static CompletableFuture<%3$s> %2$s(%4$s) {
+                        return CompletableFuture.%5$s(() -> %6$s, EXECUTOR);
+                    }
+                """.formatted(headerClassName, signature.name(), resultType, String.join(", ", parameters), isVoid ? "runAsync" : "supplyAsync", call));
+        }
+        final String packageDeclaration = packageName.isEmpty() ? "" : "package " + packageName + ";\n\n";
+        return packageDeclaration + """
+            import java.lang.foreign.*;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.atomic.AtomicInteger;
+
+            /**
+             * Calls blocking functions of {@link %1$s} on a bounded pool of platform threads, generated by the Gradle Jextract plugin.
+             * <p>
+             * The pool size defaults to the number of processors and can be set with the system property {@code %2$s.threads}.
+             */
+            public final class %3$s {
+                private static final ExecutorService EXECUTOR;
+
+                static {
+                    var count = new AtomicInteger();
+                    var threads = Integer.getInteger("%2$s.threads", Runtime.getRuntime().availableProcessors());
+                    EXECUTOR = Executors.newFixedThreadPool(Math.max(1, threads), task -> Thread.ofPlatform()
+                        .name("%1$s-blocking-" + count.incrementAndGet())
+                        .daemon(true)
+                        .unstarted(task));
+                }
+
+                private %3$s() {}
+
+                /**
+                 * The executor running the blocking calls, e.g., to run further blocking work of this library
+                 * @return The executor
+                 */
+                public static ExecutorService executor() {
+                    return EXECUTOR;
+                }
+            %4$s}
+            """.formatted(headerClassName, packageName.isEmpty() ? headerClassName : packageName + "." + headerClassName, className(), methods);
+    }
+}
@@ -0,0 +1,49 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/// Assigns the files generated by a single Jextract run for a group of libraries back to the member libraries
+///
+/// Classes generated for structs, unions, and typedefs are named after their symbol.
+/// Such a class belongs to the member whose header file declares the symbol, or else to the first member whose header directory contains the declaring header.
+/// All other files, e.g., the header class holding functions, constants, and variables, belong to the primary member, which is the first one.
+/// @param owners The owning member index by symbol name
+public record BindingsSplit(Map<String, Integer> owners) {
+    private static final Set<String> typeKinds = Set.of("struct", "union", "typedef");
+
+    /// Creates a split from the symbols of a `--dump-includes` file
+    /// @param symbols The symbols of the group's umbrella header with their declaring headers
+    /// @param memberHeaders The header files of the member libraries in member order
+    /// @return The new split
+    public static BindingsSplit of(ArgFile symbols, List<Path> memberHeaders) {
+        final List<Path> headers = memberHeaders.stream().map(it -> it.toAbsolutePath().normalize()).toList();
+        final Map<String, Integer> owners = new HashMap<>();
+        symbols.entries().stream()
+            .filter(e -> typeKinds.contains(e.kind()) && e.header() != null)
+            .forEach(e -> owners.putIfAbsent(e.name(), owner(Path.of(e.header()).toAbsolutePath().normalize(), headers)));
+        return new BindingsSplit(Map.copyOf(owners));
+    }
+
+    private static int owner(Path header, List<Path> memberHeaders) {
+        final int exact = memberHeaders.indexOf(header);
+        if (exact >= 0) return exact;
+        for (int i = 0; i < memberHeaders.size(); i++) {
+            if (header.startsWith(memberHeaders.get(i).getParent())) return i;
+        }
+        return 0;
+    }
+
+    /// Finds the member owning a generated file
+    /// @param fileName The file name of a generated source or class file, e.g., `Foo.java` or `Foo$Bar.class`
+    /// @return The owning member index
+    public int ownerOf(String fileName) {
+        int end = fileName.indexOf('$');
+        if (end < 0) end = fileName.indexOf('.');
+        final String name = end < 0 ? fileName : fileName.substring(0, end);
+        return owners.getOrDefault(name, 0);
+    }
+}
@@ -0,0 +1,61 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/// An exclusive lock on a file in a shared cache directory that is respected by all processes on the machine
+///
+/// Builds in different Gradle daemons can use the same cache, so changing its content must be guarded by this lock.
+public final class CacheLock implements AutoCloseable {
+    private static final long RETRY_MILLIS = 100;
+
+    /// Blocks until the lock for the given lock file is acquired
+    /// @param lockFile The file to be locked, created if it doesn't exist
+    /// @return The acquired lock that must be closed to release it
+    /// @throws IOException if the lock file can't be opened or locked
+    public static CacheLock acquire(Path lockFile) throws IOException {
+        Files.createDirectories(lockFile.getParent());
+        final FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            while (true) {
+                try {
+                    return new CacheLock(channel, channel.lock());
+                } catch (OverlappingFileLockException e) {
+                    // Another build in this JVM holds the lock, file locks are only exclusive between processes.
+                    Thread.sleep(RETRY_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            channel.close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for lock " + lockFile, e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private CacheLock(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /// Releases the lock
+    /// @throws IOException if the lock can't be released
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/// The classes and members that compiled classes refer to, read from the constant pools of their class files
+///
+/// Only the constant pools are read, so scanning is fast and needs no bytecode library.
+/// Class names are in internal form, e.g., `com/example/foo_h`.
+/// @param classes The referenced classes, including classes only appearing in descriptors and signatures
+/// @param members The referenced fields and methods
+public record ClassReferences(SortedSet<String> classes, SortedSet<Member> members) {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final Pattern descriptorPattern = Pattern.compile("L([\\w/$]+)[;<]");
+
+    /// A referenced field or method
+    /// @param owner The internal name of the class declaring the member
+    /// @param name The member's name
+    public record Member(String owner, String name) implements Comparable<Member> {
+        @Override
+        public int compareTo(Member other) {
+            return Comparator.comparing(Member::owner).thenComparing(Member::name).compare(this, other);
+        }
+    }
+
+    /// Scans class directories and jars
+    /// @param roots Directories containing class files or jar files, missing files are skipped
+    /// @return The references of all class files
+    /// @throws IOException if a file can't be read
+    public static ClassReferences scan(Collection<Path> roots) throws IOException {
+        final SortedSet<String> classes = new TreeSet<>();
+        final SortedSet<Member> members = new TreeSet<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                final List<Path> files;
+                try (Stream<Path> s = Files.walk(root)) {
+                    files = s.filter(it -> it.getFileName().toString().endsWith(".class") && Files.isRegularFile(it)).toList();
+                }
+                for (Path file : files) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        read(in, classes, members);
+                    }
+                }
+            } else if (Files.isRegularFile(root) && root.getFileName().toString().endsWith(".jar")) {
+                try (ZipFile zip = new ZipFile(root.toFile())) {
+                    for (ZipEntry entry : Collections.list(zip.entries())) {
+                        if (entry.isDirectory() || !entry.getName().endsWith(".class")) continue;
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            read(in, classes, members);
+                        }
+                    }
+                }
+            }
+        }
+        return new ClassReferences(classes, members);
+    }
+
+    /// Reads the references of a single class file
+    /// @param input The class file content
+    /// @return The references
+    /// @throws IOException if the content isn't a class file
+    public static ClassReferences read(InputStream input) throws IOException {
+        final SortedSet<String> classes = new TreeSet<>();
+        final SortedSet<Member> members = new TreeSet<>();
+        read(input, classes, members);
+        return new ClassReferences(classes, members);
+    }
+
+    /// Finds the symbols of generated bindings these references use, e.g., functions called through the header class
+    ///
+    /// Classes in the package are matched against structs, unions, and typedefs.
+    /// Members of the header class and its nested or split classes are matched against functions, constants, variables, and typedefs, ignoring suffixes like `$MH`.
+    /// @param index The symbol index of the library header
+    /// @param packageName The package of the generated bindings, empty for the unnamed package
+    /// @param headerClassName The simple name of the header class
+    /// @return The used symbols in index order
+    public ArgFile usedSymbols(SymbolIndex index, String packageName, String headerClassName) {
+        final String prefix = packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/";
+        final Set<String> typeNames = new HashSet<>();
+        final Set<String> memberNames = new HashSet<>();
+        for (String name : classes) {
+            final String simpleName = simpleName(name, prefix);
+            if (simpleName == null) continue;
+            final String outer = simpleName.split("\\$", 2)[0];
+            if (ShardPlan.isHeaderClassFile(outer, headerClassName)) {
+                if (simpleName.contains("$")) memberNames.add(memberName(simpleName.substring(simpleName.indexOf('$') + 1)));
+            } else {
+                typeNames.add(outer);
+            }
+        }
+        for (Member member : members) {
+            final String simpleName = simpleName(member.owner(), prefix);
+            if (simpleName != null && ShardPlan.isHeaderClassFile(simpleName.split("\\$", 2)[0], headerClassName)) memberNames.add(memberName(member.name()));
+        }
+        return new ArgFile(index.symbols().stream()
+            .filter(it -> switch (it.kind()) {
+                case "struct", "union" -> typeNames.contains(it.name());
+                case "typedef" -> typeNames.contains(it.name()) || memberNames.contains(it.name());
+                default -> memberNames.contains(it.name());
+            })
+            .map(SymbolIndex.Symbol::toEntry)
+            .toList());
+    }
+
+    private static String simpleName(String internalName, String prefix) {
+        if (!internalName.startsWith(prefix)) return null;
+        final String simpleName = internalName.substring(prefix.length());
+        return simpleName.contains("/") ? null : simpleName;
+    }
+
+    private static String memberName(String name) {
+        final int index = name.indexOf('$');
+        return index > 0 ? name.substring(0, index) : name;
+    }
+
+    private static void read(InputStream input, Set<String> classes, Set<Member> members) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) throw new IOException("Not a class file");
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        final int count = in.readUnsignedShort();
+        final String[] strings = new String[count];
+        final int[] classNames = new int[count];
+        final int[][] refs = new int[count][];
+        final int[][] nameAndTypes = new int[count][];
+        for (int i = 1; i < count; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> strings[i] = in.readUTF();
+                case 7 -> classNames[i] = in.readUnsignedShort();
+                case 9, 10, 11 -> refs[i] = new int[]{in.readUnsignedShort(), in.readUnsignedShort()};
+                case 12 -> nameAndTypes[i] = new int[]{in.readUnsignedShort(), in.readUnsignedShort()};
+                case 3, 4, 17, 18 -> in.skipNBytes(4);
+                case 5, 6 -> {
+                    in.skipNBytes(8);
+                    i++;
+                }
+                case 15 -> in.skipNBytes(3);
+                case 8, 16, 19, 20 -> in.skipNBytes(2);
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            if (classNames[i] > 0) classes.add(strings[classNames[i]]);
+            if (refs[i] != null) members.add(new Member(strings[classNames[refs[i][0]]], strings[nameAndTypes[refs[i][1]][0]]));
+            if (strings[i] != null && strings[i].indexOf('L') >= 0) {
+                final Matcher m = descriptorPattern.matcher(strings[i]);
+                while (m.find()) classes.add(m.group(1));
+            }
+        }
+    }
+}
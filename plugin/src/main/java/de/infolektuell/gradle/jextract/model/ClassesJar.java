@@ -0,0 +1,78 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/// Packages generated class files into a reproducible jar
+///
+/// Entries are sorted and carry a constant timestamp, so the same classes always result in a byte-identical jar.
+public final class ClassesJar {
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+    private ClassesJar() {}
+
+    /// Moves all class files below a directory into a new jar, replacing a previous jar atomically
+    /// @param root The directory containing the class files in their package directories
+    /// @param jar The jar file to be written
+    /// @return The number of packaged classes
+    /// @throws IOException if a class file can't be read or the jar can't be written
+    public static int pack(Path root, Path jar) throws IOException {
+        final List<Path> classes;
+        try (Stream<Path> s = Files.walk(root)) {
+            classes = s.filter(it -> Files.isRegularFile(it) && it.getFileName().toString().endsWith(".class"))
+                .sorted()
+                .toList();
+        }
+        final SortedSet<String> entries = new TreeSet<>();
+        classes.forEach(it -> {
+            final Path relative = root.relativize(it);
+            for (int i = 1; i < relative.getNameCount(); i++) entries.add(name(relative.subpath(0, i)) + "/");
+            entries.add(name(relative));
+        });
+        Files.createDirectories(jar.toAbsolutePath().getParent());
+        final Path tmp = Files.createTempFile(jar.toAbsolutePath().getParent(), jar.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp); JarOutputStream jarOut = new JarOutputStream(out)) {
+                final Manifest manifest = new Manifest();
+                manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+                jarOut.putNextEntry(entry("META-INF/"));
+                jarOut.closeEntry();
+                jarOut.putNextEntry(entry("META-INF/MANIFEST.MF"));
+                manifest.write(jarOut);
+                jarOut.closeEntry();
+                for (String name : entries) {
+                    jarOut.putNextEntry(entry(name));
+                    if (!name.endsWith("/")) Files.copy(root.resolve(name), jarOut);
+                    jarOut.closeEntry();
+                }
+            }
+            Files.move(tmp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        for (Path it : classes) Files.delete(it);
+        return classes.size();
+    }
+
+    private static String name(Path relative) {
+        return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+    }
+
+    private static JarEntry entry(String name) {
+        final JarEntry entry = new JarEntry(name);
+        entry.setTimeLocal(ENTRY_TIME);
+        return entry;
+    }
+}
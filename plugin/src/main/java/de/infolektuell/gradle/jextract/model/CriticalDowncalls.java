@@ -0,0 +1,72 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/// Links the downcall handles of selected functions in sources generated by Jextract 22 and above with `Linker.Option.critical`
+///
+/// Jextract declares a holder class per function, whose `downcallHandle(ADDR, DESC)` call gets the linker option appended.
+/// Critical functions skip the thread state transition, so they must be short and must not call back into Java.
+/// Rewriting is idempotent, so already linked handles are left unchanged.
+/// @param functions The function names, mapped to whether the function may access heap memory segments
+public record CriticalDowncalls(SortedMap<String, Boolean> functions) {
+    private static final Pattern holderPattern = Pattern.compile("(class\\s+(?<name>[A-Za-z_$][\\w$]*)\\s*\\{[^{}]*?\\.downcallHandle\\((?<args>[^;{}]*?))\\)\\s*;");
+
+    /// Creates an instance for the given functions
+    /// @param functions The function names, mapped to whether the function may access heap memory segments
+    /// @return The new instance
+    public static CriticalDowncalls of(Map<String, Boolean> functions) {
+        return new CriticalDowncalls(new TreeMap<>(functions));
+    }
+
+    /// Rewrites all generated source files below a directory
+    /// @param root The directory containing the generated sources
+    /// @return The names of the functions whose downcall handles are critical after rewriting
+    /// @throws IOException if a file can't be read or written
+    public SortedSet<String> apply(Path root) throws IOException {
+        final SortedSet<String> linked = new TreeSet<>();
+        if (functions.isEmpty() || !Files.isDirectory(root)) return linked;
+        final List<Path> files;
+        try (Stream<Path> s = Files.walk(root)) {
+            files = s.filter(it -> it.getFileName().toString().endsWith(".java") && Files.isRegularFile(it)).toList();
+        }
+        for (Path file : files) {
+            final String content = Files.readString(file, StandardCharsets.UTF_8);
+            if (!content.contains("downcallHandle")) continue;
+            final String rewritten = rewrite(content, linked);
+            if (!rewritten.equals(content)) Files.writeString(file, rewritten, StandardCharsets.UTF_8);
+        }
+        return linked;
+    }
+
+    /// Rewrites the content of a source file
+    /// @param source The source code
+    /// @param linked Collects the names of the functions whose downcall handles are critical
+    /// @return The rewritten source code
+    public String rewrite(String source, Set<String> linked) {
+        final Matcher matcher = holderPattern.matcher(source);
+        final StringBuilder result = new StringBuilder(source.length() + 64);
+        while (matcher.find()) {
+            final String name = matcher.group("name");
+            final Boolean allowHeapAccess = functions.get(name);
+            if (allowHeapAccess == null) {
+                matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group()));
+                continue;
+            }
+            linked.add(name);
+            if (matcher.group("args").contains("Option.critical")) {
+                matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group()));
+            } else {
+                matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(1) + ", Linker.Option.critical(" + allowHeapAccess + "));"));
+            }
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/// Memoizes file lookups in directories that are needed while the build is configured, e.g., finding a library's header file
+///
+/// An index is meant to be kept for the duration of a build, so the results are shared by all providers and projects.
+/// A result is reused as long as the modification times of all directories visited by the search and of the found file are unchanged.
+/// Checking these timestamps is much cheaper than listing the directories again.
+/// Searches visit the tree breadth-first in sorted order and stop at the first match instead of enumerating all files.
+/// They don't descend deeper than the patterns can match, so patterns without `**` only visit a few levels.
+/// Symbolic links to directories are followed, but a directory reached twice is only visited once.
+public final class DirectoryIndex {
+    private record Key(Path root, List<String> patterns) {}
+
+    private record Stamp(Map<Path, Long> visited, Optional<Path> result, long resultModified) {}
+
+    private final Map<Key, Stamp> lookups = new ConcurrentHashMap<>();
+
+    /// Creates an empty index
+    public DirectoryIndex() { super(); }
+
+    /// Finds the first file below a directory matching any of the given Ant-style patterns, e.g., `**/foo.h`
+    ///
+    /// Files closer to the root are found first, files in the same directory are ordered by name.
+    /// @param root The directory to search
+    /// @param patterns Patterns relative to the root, where `**` matches any number of directories
+    /// @return The first matching file, empty if there is none
+    public Optional<Path> findFirst(Path root, Collection<String> patterns) {
+        final Path dir = root.toAbsolutePath().normalize();
+        final Key key = new Key(dir, patterns.stream().sorted().toList());
+        final Stamp cached = lookups.get(key);
+        if (cached != null && isValid(cached)) return cached.result;
+        final List<Pattern> matchers = key.patterns.stream().map(DirectoryIndex::compile).toList();
+        final Map<Path, Long> visited = new HashMap<>();
+        final Optional<Path> result = search(dir, it -> matchers.stream().anyMatch(m -> m.matcher(it).matches()), maxDepth(key.patterns), visited);
+        lookups.put(key, new Stamp(Map.copyOf(visited), result, result.map(DirectoryIndex::modified).orElse(-1L)));
+        return result;
+    }
+
+    /// Checks if a directory contains a module descriptor (`module-info.java` or `module-info.class`) at its root or one level below
+    /// @param root The directory to check
+    /// @return true if a module descriptor was found
+    public boolean containsModuleDescriptor(Path root) {
+        if (!Files.isDirectory(root)) return false;
+        return findFirst(root, List.of("module-info.java", "module-info.class", "*/module-info.java", "*/module-info.class")).isPresent();
+    }
+
+    /// The deepest level of the tree the patterns can match, where files directly in the root are at level 1
+    /// @param patterns Ant-style patterns
+    /// @return The number of path segments of the longest pattern, unlimited if a pattern contains `**`
+    static int maxDepth(Collection<String> patterns) {
+        int depth = 0;
+        for (String pattern : patterns) {
+            final String normalized = pattern.replace('\\', '/');
+            if (normalized.contains("**") || normalized.endsWith("/")) return Integer.MAX_VALUE;
+            depth = Math.max(depth, normalized.split("/").length);
+        }
+        return depth;
+    }
+
+    /// Converts an Ant-style pattern into a regular expression for `/`-separated relative paths
+    /// @param pattern The pattern, e.g., `**/include/*.h`
+    /// @return The compiled regular expression
+    static Pattern compile(String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        if (normalized.endsWith("/")) normalized += "**";
+        final StringBuilder regex = new StringBuilder();
+        final String[] segments = normalized.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            final String segment = segments[i];
+            final boolean isLast = i == segments.length - 1;
+            if (segment.equals("**")) {
+                regex.append(isLast ? ".*" : "(?:[^/]*/)*");
+                continue;
+            }
+            for (char c : segment.toCharArray()) {
+                switch (c) {
+                    case '*' -> regex.append("[^/]*");
+                    case '?' -> regex.append("[^/]");
+                    default -> regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            if (!isLast) regex.append('/');
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static Optional<Path> search(Path root, Predicate<String> matcher, int maxDepth, Map<Path, Long> visited) {
+        if (!Files.isDirectory(root)) return Optional.empty();
+        final Deque<Path> queue = new ArrayDeque<>();
+        final Map<Path, Integer> depths = new HashMap<>();
+        final Set<Path> realDirs = new HashSet<>();
+        queue.add(root);
+        depths.put(root, 0);
+        while (!queue.isEmpty()) {
+            final Path dir = queue.poll();
+            final int depth = depths.remove(dir);
+            // Symbolic links may point to a directory that was already visited, or to one of its parents.
+            if (!realDirs.add(realPath(dir))) continue;
+            visited.put(dir, modified(dir));
+            final List<Path> children;
+            try (Stream<Path> s = Files.list(dir)) {
+                children = s.sorted().toList();
+            } catch (IOException e) {
+                continue;
+            }
+            for (Path child : children) {
+                if (Files.isDirectory(child)) {
+                    // Files in a child directory are one level deeper than the directory itself.
+                    if (depth + 2 > maxDepth) continue;
+                    queue.add(child);
+                    depths.put(child, depth + 1);
+                } else if (Files.isRegularFile(child) && matcher.test(root.relativize(child).toString().replace(child.getFileSystem().getSeparator(), "/"))) {
+                    return Optional.of(child);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Path realPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path;
+        }
+    }
+
+    private static boolean isValid(Stamp stamp) {
+        if (stamp.visited.entrySet().stream().anyMatch(e -> modified(e.getKey()) != e.getValue())) return false;
+        return stamp.result.map(it -> modified(it) == stamp.resultModified).orElse(true);
+    }
+
+    private static long modified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -1,32 +1,74 @@
 package de.infolektuell.gradle.jextract.model;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.security.DigestInputStream;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.HexFormat;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /// A service class for downloading files
-public class DownloadClient {
+///
+/// Verified files get a [stamp][VerificationStamp] next to them, so unchanged files are not hashed again.
+/// Downloads are written into a `.part` file that is resumed by subsequent attempts and moved to its target once it is verified.
+/// A resource is tried from all its locations in order of priority, each location is retried with increasing backoff.
+public class DownloadClient implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
 
     /// Describes a downloadable file
     /// @param url The remote location of the downloadable file
     /// @param checksum A checksum to verify the integrity of the downloaded file
     /// @param algorithm The algorithm that was used to generate the checksum, e.g., SHA-256
-    public record Resource(URI url, String checksum, String algorithm) implements Serializable {
+    /// @param mirrors Alternative locations of the same file, preferred over the url in the given order
+    public record Resource(URI url, String checksum, String algorithm, List<URI> mirrors) implements Serializable {
         @Serial
-        private static final long serialVersionUID = 2L;
+        private static final long serialVersionUID = 3L;
+
+        /// Describes a downloadable file without mirrors
+        /// @param url The remote location of the downloadable file
+        /// @param checksum A checksum to verify the integrity of the downloaded file
+        /// @param algorithm The algorithm that was used to generate the checksum, e.g., SHA-256
+        public Resource(URI url, String checksum, String algorithm) {
+            this(url, checksum, algorithm, List.of());
+        }
+
+        /// All locations of the file in order of priority, mirrors first
+        /// @return A list of URIs
+        public List<URI> locations() {
+            return Stream.concat(mirrors.stream(), Stream.of(url)).distinct().toList();
+        }
+    }
+
+    /// Signals a failed transfer that won't succeed if it is retried from the same location
+    private static final class PermanentFailure extends IOException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        PermanentFailure(String message) { super(message); }
     }
 
+    private HttpClient client;
+
     ///  Creates a new instance
     public DownloadClient() { super(); }
 
@@ -34,43 +76,136 @@ public class DownloadClient {
     /// @param resource Data describing the download location and file checksum
     /// @param target The file path to store the downloaded file
     public void download(Resource resource, Path target) {
-        var builder = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).version(HttpClient.Version.HTTP_1_1);
-        try (HttpClient client = builder.build()) {
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(resource.url)
-                .GET()
-                .build();
-            var response = client.send(request, BodyHandlers.ofInputStream());
-            if (response.statusCode() != 200)
-                throw new RuntimeException(String.format("Downloading from %s failed with status code %d.", resource.url, response.statusCode()));
-            var md = MessageDigest.getInstance(resource.algorithm);
-            var input = new DigestInputStream(response.body(), md);
+        final Path part = target.resolveSibling(target.getFileName() + ".part");
+        final var failure = new RuntimeException(String.format("Downloading %s failed from all locations.", target.getFileName()));
+        try {
             Files.createDirectories(target.getParent());
-            Files.copy(input, target, StandardCopyOption.REPLACE_EXISTING);
-            String calculatedChecksum = HexFormat.of().formatHex(input.getMessageDigest().digest());
-            if (!Objects.equals(resource.checksum, calculatedChecksum)) {
-                Files.deleteIfExists(target);
-                throw new RuntimeException(String.format("Data integrity of downloaded file %s could not be verified, checksums do not match.", resource.url));
-            }
-        } catch (Exception e) {
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        for (URI location : resource.locations()) {
+            Duration backoff = INITIAL_BACKOFF;
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                try {
+                    transfer(location, part);
+                    String calculatedChecksum = checksum(part, resource.algorithm);
+                    if (!Objects.equals(resource.checksum, calculatedChecksum)) {
+                        Files.deleteIfExists(part);
+                        throw new IOException(String.format("Data integrity of downloaded file %s could not be verified, checksums do not match.", location));
+                    }
+                    Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    VerificationStamp.of(target, resource).write(VerificationStamp.locate(target));
+                    return;
+                } catch (PermanentFailure e) {
+                    failure.addSuppressed(e);
+                    break;
+                } catch (IOException | NoSuchAlgorithmException e) {
+                    failure.addSuppressed(e);
+                    if (attempt == MAX_ATTEMPTS) break;
+                    try {
+                        Thread.sleep(backoff.toMillis());
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw failure;
+                    }
+                    backoff = backoff.multipliedBy(2);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /// Releases the HTTP connections that were kept open for reuse
+    @Override
+    public synchronized void close() {
+        if (client != null) client.close();
+        client = null;
+    }
+
+    private synchronized HttpClient getClient() {
+        if (client == null) {
+            client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        }
+        return client;
+    }
+
+    /// Transfers the file at a location into a part file, resuming a previous transfer if possible
+    private void transfer(URI location, Path part) throws IOException {
+        if (Objects.equals(location.getScheme(), "file")) {
+            final Path source = Path.of(location);
+            if (!Files.isRegularFile(source)) throw new PermanentFailure(String.format("File %s does not exist.", source));
+            Files.copy(source, part, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        final long offset = Files.exists(part) ? Files.size(part) : 0;
+        final var request = HttpRequest.newBuilder().uri(location).GET();
+        if (offset > 0) request.header("Range", String.format("bytes=%d-", offset));
+        final HttpResponse<InputStream> response;
+        try {
+            response = getClient().send(request.build(), BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading from " + location, e);
+        }
+        final int status = response.statusCode();
+        try (InputStream body = response.body()) {
+            // The part file is already complete, the checksum decides if it is usable.
+            if (status == 416 && offset > 0) return;
+            final boolean resumed = status == 206;
+            if (status != 200 && !resumed) {
+                final String message = String.format("Downloading from %s failed with status code %d.", location, status);
+                if (status >= 400 && status < 500 && status != 408 && status != 429) throw new PermanentFailure(message);
+                throw new IOException(message);
+            }
+            final var options = resumed
+                ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING};
+            try (OutputStream out = Files.newOutputStream(part, options)) {
+                body.transferTo(out);
+            }
+        }
     }
 
     /// Checks that a given file is the downloaded file for a given resource by comparing their checksums.
+    ///
+    /// The file is only hashed if its stamp is missing or stale, i.e., size, modification time or expected checksum differ.
     /// @param resource Data describing the remote downloadable file
     /// @param file The file to verify
     /// @return True if the checksums match, false otherwise.
     public boolean verify(Resource resource, Path file) {
         if (!Files.exists(file)) return false;
-        try (var s = Files.newInputStream(file)) {
-            var md = MessageDigest.getInstance(resource.algorithm);
-            var input = new DigestInputStream(s, md);
-            input.readAllBytes();
-            String calculatedChecksum = HexFormat.of().formatHex(input.getMessageDigest().digest());
-            return Objects.equals(resource.checksum, calculatedChecksum);
+        final Path stampFile = VerificationStamp.locate(file);
+        final Optional<VerificationStamp> stamp = VerificationStamp.read(stampFile);
+        if (stamp.isPresent() && stamp.get().matches(file, resource)) return true;
+        try {
+            String calculatedChecksum = checksum(file, resource.algorithm);
+            if (!Objects.equals(resource.checksum, calculatedChecksum)) return false;
+            VerificationStamp.of(file, resource).write(stampFile);
+            return true;
         } catch (Exception ignored) {
             return false;
         }
     }
+
+    /// Calculates the checksum of a file, streaming its content in chunks
+    /// @param file The file to hash
+    /// @param algorithm The algorithm to use, e.g., SHA-256
+    /// @return The checksum as a hexadecimal string
+    /// @throws IOException if the file can't be read
+    /// @throws NoSuchAlgorithmException if the algorithm is not supported
+    public static String checksum(Path file, String algorithm) throws IOException, NoSuchAlgorithmException {
+        var md = MessageDigest.getInstance(algorithm);
+        try (var channel = FileChannel.open(file)) {
+            var buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
 }
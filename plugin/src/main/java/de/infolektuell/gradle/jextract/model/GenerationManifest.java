@@ -0,0 +1,105 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/// Records which files Jextract generated for each symbol, so a later run can update the output for a changed whitelist
+///
+/// Files are attributed to the symbol they are named after, e.g., `Foo.java` and `Foo$Bar.class` to the struct `Foo`.
+/// All other files, mainly the header class holding functions, constants, and variables, belong to the header class entry.
+/// @param headerClassName The name of the header class used for the generation
+/// @param files The generated file paths relative to their output directory by symbol key, see [#key(ArgFile.Entry)]
+public record GenerationManifest(String headerClassName, SortedMap<String, SortedSet<String>> files) {
+    /// The key of the entry holding the header class files and all files not named after a symbol
+    public static final String HEADER_CLASS = "";
+
+    /// Checks if Jextract generates symbols of a kind into the header class
+    ///
+    /// Typedefs are included, because Jextract generates them as header class fields unless they name a struct or function pointer.
+    /// @param kind The symbol kind, e.g., `function` or `struct`
+    /// @return true unless the kind is a struct or union
+    public static boolean isHeaderClassKind(String kind) {
+        return !kind.equals("struct") && !kind.equals("union");
+    }
+
+    /// The manifest key of a symbol
+    /// @param entry An include option of the symbol
+    /// @return The key
+    public static String key(ArgFile.Entry entry) {
+        return entry.kind() + " " + entry.name();
+    }
+
+    /// Scans the output directories of a generation and attributes the files to the symbols
+    /// @param symbols The symbols that were generated
+    /// @param headerClassName The name of the header class used for the generation
+    /// @param roots The output directories, e.g., for sources and classes
+    /// @return The new manifest
+    /// @throws IOException if a directory can't be scanned
+    public static GenerationManifest scan(ArgFile symbols, String headerClassName, List<Path> roots) throws IOException {
+        final Map<String, String> keysByName = new HashMap<>();
+        symbols.entries().forEach(e -> keysByName.putIfAbsent(e.name(), key(e)));
+        final SortedMap<String, SortedSet<String>> files = new TreeMap<>();
+        symbols.entries().forEach(e -> files.putIfAbsent(key(e), new TreeSet<>()));
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) continue;
+            try (Stream<Path> s = Files.walk(root)) {
+                s.filter(Files::isRegularFile).forEach(file -> {
+                    final String fileName = file.getFileName().toString();
+                    final String key = ShardPlan.isHeaderClassFile(fileName, headerClassName) ? HEADER_CLASS : keysByName.getOrDefault(topLevelName(fileName), HEADER_CLASS);
+                    files.computeIfAbsent(key, k -> new TreeSet<>()).add(root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/"));
+                });
+            }
+        }
+        return new GenerationManifest(headerClassName, files);
+    }
+
+    /// Reads a manifest file
+    /// @param path The manifest file
+    /// @return The manifest, empty if the file doesn't exist or is malformed
+    public static Optional<GenerationManifest> read(Path path) {
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        try (var r = Files.newBufferedReader(path)) {
+            final var data = new Properties();
+            data.load(r);
+            final String headerClassName = data.getProperty("headerClassName");
+            if (headerClassName == null) return Optional.empty();
+            final SortedMap<String, SortedSet<String>> files = new TreeMap<>();
+            data.stringPropertyNames().stream()
+                .filter(it -> it.startsWith("files."))
+                .forEach(it -> files.put(it.substring(6), new TreeSet<>(Arrays.stream(data.getProperty(it).split(",")).filter(f -> !f.isEmpty()).toList())));
+            return Optional.of(new GenerationManifest(headerClassName, files));
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /// The keys of all generated symbols
+    /// @return The sorted set of symbol keys
+    public SortedSet<String> symbols() {
+        final SortedSet<String> result = new TreeSet<>(files.keySet());
+        result.remove(HEADER_CLASS);
+        return result;
+    }
+
+    /// Writes the manifest
+    /// @param path The manifest file
+    /// @throws IOException if the file can't be written
+    public void write(Path path) throws IOException {
+        final var data = new Properties();
+        data.setProperty("headerClassName", headerClassName);
+        files.forEach((key, paths) -> data.setProperty("files." + key, String.join(",", paths)));
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (var w = Files.newBufferedWriter(path)) {
+            data.store(w, null);
+        }
+    }
+
+    private static String topLevelName(String fileName) {
+        int end = fileName.indexOf('$');
+        if (end < 0) end = fileName.indexOf('.');
+        return end < 0 ? fileName : fileName.substring(0, end);
+    }
+}
@@ -0,0 +1,105 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/// The header files that Jextract may include when it parses a library header
+///
+/// It contains every header reachable by include directives, so headers that only affect preprocessing are tracked too.
+/// The closure file refers to the include directories by their index, so it's only valid for the include search path it was recorded with.
+/// @param includes The include search path in order
+/// @param headers The included header files
+public record HeaderClosure(List<Path> includes, SortedSet<Path> headers) {
+    private static final String UNRESOLVED = "*";
+    private static final Pattern includePattern = Pattern.compile("^\\s*#\\s*(?:include_next|include|import)\\s*(?:[<\"](?<name>[^>\"]+)[>\"]|(?<macro>\\w+))", Pattern.MULTILINE);
+
+    /// Finds all headers within the include search path that are reachable from a header by include directives
+    ///
+    /// Directives are followed regardless of conditional compilation, and a name is resolved in all include directories, so the result is a superset of the headers the preprocessor reads.
+    /// @param header The header to start from
+    /// @param includes The include search path in order
+    /// @return The reachable headers including the given one, empty if a directive includes a computed name that can't be resolved statically
+    /// @throws IOException if a header can't be read
+    public static Optional<SortedSet<Path>> scan(Path header, List<Path> includes) throws IOException {
+        final SortedSet<Path> visited = new TreeSet<>();
+        final Deque<Path> queue = new ArrayDeque<>(List.of(header.toAbsolutePath().normalize()));
+        while (!queue.isEmpty()) {
+            final Path current = queue.removeFirst();
+            if (!visited.add(current)) continue;
+            final Matcher matcher = includePattern.matcher(Files.readString(current, StandardCharsets.ISO_8859_1));
+            while (matcher.find()) {
+                if (matcher.group("macro") != null) return Optional.empty();
+                final String name = matcher.group("name");
+                Stream.concat(Stream.of(current.getParent()), includes.stream())
+                    .map(it -> it.resolve(name).toAbsolutePath().normalize())
+                    .filter(Files::isRegularFile)
+                    .filter(it -> !visited.contains(it))
+                    .forEach(queue::addLast);
+            }
+        }
+        return Optional.of(visited);
+    }
+
+    /// Reads the patterns of a closure file
+    /// @param path The file to read
+    /// @param includeCount The number of directories in the current include search path
+    /// @return Ant-style patterns of the included headers for each include directory, empty if the file doesn't exist, can't be read, doesn't match the include search path, or the headers couldn't be resolved statically
+    public static Optional<List<List<String>>> readPatterns(Path path, int includeCount) {
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        try (Stream<String> lines = Files.lines(path)) {
+            final List<List<String>> patterns = new ArrayList<>();
+            for (int i = 0; i < includeCount; i++) patterns.add(new ArrayList<>());
+            for (String line : lines.filter(it -> !it.isBlank()).toList()) {
+                if (line.equals(UNRESOLVED)) return Optional.empty();
+                final int separator = line.indexOf(':');
+                final int index = Integer.parseInt(line.substring(0, separator));
+                if (index >= includeCount) return Optional.empty();
+                patterns.get(index).add(line.substring(separator + 1));
+            }
+            return Optional.of(patterns);
+        } catch (IOException | RuntimeException ignored) {
+            return Optional.empty();
+        }
+    }
+
+    /// Writes a closure file stating that the headers couldn't be resolved statically, so the whole include directories must be considered
+    /// @param path The file to write
+    /// @throws IOException if the file can't be written
+    public static void writeUnresolved(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.write(path, List.of(UNRESOLVED));
+    }
+
+    /// The included headers within a given directory
+    /// @param directory A directory of the include search path
+    /// @return Ant-style patterns of the headers relative to the directory
+    public List<String> patternsWithin(Path directory) {
+        final Path root = directory.toAbsolutePath().normalize();
+        return headers.stream()
+            .filter(it -> it.startsWith(root))
+            .map(it -> root.relativize(it).toString().replace('\\', '/'))
+            .toList();
+    }
+
+    /// Writes the closure file
+    ///
+    /// Each header is written relative to the include directories containing it, prefixed by their index, so the file doesn't depend on the project location.
+    /// Headers outside the include search path are omitted.
+    /// @param path The file to write
+    /// @throws IOException if the file can't be written
+    public void write(Path path) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < includes.size(); i++) {
+            final int index = i;
+            patternsWithin(includes.get(i)).forEach(it -> lines.add(index + ":" + it));
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.write(path, lines);
+    }
+}
@@ -0,0 +1,62 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+
+/// Marks a completely unpacked Jextract installation
+///
+/// The marker is written last and atomically, so its presence proves that the installation is complete.
+/// It also records where the executable is located, so the installation needn't be searched again.
+/// @param archive The stamp of the verified archive the installation was extracted from
+/// @param executable The path of the Jextract executable, relative to the installation directory
+public record InstallationMarker(VerificationStamp archive, Path executable) {
+    /// The location of the marker file belonging to an installation directory
+    /// @param root The installation directory
+    /// @return A sibling path of the installation directory
+    public static Path locate(Path root) {
+        return root.resolveSibling(root.getFileName() + ".installed");
+    }
+
+    /// Reads a marker from a properties file
+    /// @param path The marker file
+    /// @return The marker if the file exists and is well-formed, empty otherwise
+    public static Optional<InstallationMarker> read(Path path) {
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        try (var r = Files.newBufferedReader(path)) {
+            var data = new Properties();
+            data.load(r);
+            var archive = new VerificationStamp(
+                Long.parseLong(data.getProperty("size")),
+                Long.parseLong(data.getProperty("lastModified")),
+                Objects.requireNonNull(data.getProperty("algorithm")),
+                Objects.requireNonNull(data.getProperty("checksum"))
+            );
+            return Optional.of(new InstallationMarker(archive, Path.of(data.getProperty("executable"))));
+        } catch (Exception ignored) {
+            return Optional.empty();
+        }
+    }
+
+    /// Writes this marker into a properties file, replacing it atomically
+    /// @param path The marker file
+    /// @throws IOException if the marker can't be written
+    public void write(Path path) throws IOException {
+        var data = new Properties();
+        data.setProperty("size", Long.toString(archive.size()));
+        data.setProperty("lastModified", Long.toString(archive.lastModified()));
+        data.setProperty("algorithm", archive.algorithm());
+        data.setProperty("checksum", archive.checksum());
+        data.setProperty("executable", executable.toString());
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try (var w = Files.newBufferedWriter(tmp)) {
+            data.store(w, null);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
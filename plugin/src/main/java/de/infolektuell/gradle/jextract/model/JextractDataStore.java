@@ -2,23 +2,31 @@ package de.infolektuell.gradle.jextract.model;
 
 import de.infolektuell.gradle.jextract.model.DownloadClient.Resource;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /// Helpers for consistent paths and filenames for Jextract, depending on version and platform
 public class JextractDataStore {
     /// Tries to create an instance of JextractDataStore using data from a properties file
     /// @param path The file that contains the Jextract distribution data to be loaded
     /// @return a JextractDataStore instance
+    /// @throws IllegalArgumentException if a configured mirror isn't a valid URL
     public static JextractDataStore create(Path path) {
         try (var f = Files.newBufferedReader(path)) {
             var data = new Properties();
             data.load(f);
             return new JextractDataStore(data);
-        } catch (Exception e) {
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -35,10 +43,14 @@ public class JextractDataStore {
         }
     }
 
+    private static final Set<String> MIRROR_SCHEMES = Set.of("http", "https", "file");
     private final Platform platform = Platform.getCurrentPlatform();
     private final Properties data;
     JextractDataStore(Properties data) {
         this.data = data;
+        data.stringPropertyNames().stream()
+            .filter(it -> it.endsWith(".mirrors"))
+            .forEach(name -> list(data.getProperty(name)).forEach(value -> mirror(name, value)));
     }
 
     /// Constructs the file name of the Jextract executable depending on the current operating system
@@ -58,6 +70,10 @@ public class JextractDataStore {
     }
 
     /// Creates a downloadable resource for the specified Jextract version
+    ///
+    /// Mirrors are preferred over the official URL. They are read from two comma-separated lists:
+    /// - `jextract.<version>.<os>.<arch>.mirrors` contains complete URLs of the archive.
+    /// - `jextract.mirrors` contains base URLs of repositories, e.g., a local directory or a raw Maven/HTTP repository, where the archive file name is appended.
     /// @param javaVersion A major Java language version
     /// @return The constructed resource matching the java version
     public Resource resource(int javaVersion) {
@@ -68,7 +84,32 @@ public class JextractDataStore {
         String baseFallback = String.format("jextract.%d.%s.%s", version, os, "x64");
         String url = data.getProperty(base + ".url", data.getProperty(baseFallback + ".url"));
         String checksum = data.getProperty(base + ".sha-256", data.getProperty(baseFallback + ".sha-256"));
-        return new Resource(URI.create(url), checksum, "SHA-256");
+        String filename = filename(javaVersion);
+        List<URI> mirrors = Stream.concat(
+                list(data.getProperty(base + ".mirrors", data.getProperty(baseFallback + ".mirrors"))).map(it -> mirror(base + ".mirrors", it)),
+                list(data.getProperty("jextract.mirrors")).map(it -> mirror("jextract.mirrors", it.endsWith("/") ? it : it + "/").resolve(filename))
+            )
+            .toList();
+        return new Resource(URI.create(url), checksum, "SHA-256", mirrors);
+    }
+
+    /// Parses a mirror URL, so a misconfigured mirror is reported when the distribution data is loaded instead of escaping a download
+    private static URI mirror(String property, String value) {
+        final URI uri;
+        try {
+            uri = new URI(value);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(String.format("The mirror '%s' in %s isn't a valid URL.", value, property), e);
+        }
+        if (uri.getScheme() == null || uri.isOpaque() || !MIRROR_SCHEMES.contains(uri.getScheme().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException(String.format("The mirror '%s' in %s must be an absolute http, https, or file URL.", value, property));
+        }
+        return uri;
+    }
+
+    private static Stream<String> list(String value) {
+        if (value == null) return Stream.empty();
+        return Arrays.stream(value.split(",")).map(String::trim).filter(it -> !it.isEmpty());
     }
 
     /// Constructs an archive filename for the specified Jextract version
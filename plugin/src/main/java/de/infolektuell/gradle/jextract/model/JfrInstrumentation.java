@@ -0,0 +1,199 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/// Adds a thin layer to sources generated by Jextract 22 and above that records downcalls and upcalls as JFR events
+///
+/// The downcall handle of each function and the method handle of each upcall stub are wrapped by method handle combinators.
+/// They emit `jextract.Downcall` and `jextract.Upcall` events with the function name and duration, JFR adds the thread.
+/// The events have a configurable default threshold, and only a sample of the calls is measured.
+/// Rewriting is idempotent, so already instrumented handles are left unchanged.
+/// @param packageName The package of the generated bindings, empty for the unnamed package
+/// @param className The simple name of the generated helper class
+/// @param threshold The default duration threshold of the events, e.g., `1 ms`
+/// @param sampling One of this many calls is measured, 1 measures every call
+public record JfrInstrumentation(String packageName, String className, String threshold, int sampling) {
+    private static final Pattern downcallPattern = Pattern.compile("(class\\s+(?<name>[A-Za-z_$][\\w$]*)\\s*\\{[^{}]*?=\\s*)(?<handle>Linker\\.nativeLinker\\(\\)\\s*\\.downcallHandle\\([^;{}]*\\))\\s*;");
+    private static final Pattern upcallPattern = Pattern.compile("\\.upcallStub\\((?<handle>[^,;]+),");
+    private static final Pattern thresholdPattern = Pattern.compile("^\\d+\\s*(?:ns|us|ms|s|m|h|d)$");
+
+    /// Validates the configuration
+    public JfrInstrumentation {
+        if (!thresholdPattern.matcher(threshold).matches()) throw new IllegalArgumentException("Invalid JFR threshold: " + threshold);
+        if (sampling < 1) throw new IllegalArgumentException("The sampling must be at least 1: " + sampling);
+    }
+
+    /// Creates an instance whose helper class is named after the header class
+    /// @param packageName The package of the generated bindings, empty for the unnamed package
+    /// @param headerClassName The header class name
+    /// @param threshold The default duration threshold of the events, e.g., `1 ms`
+    /// @param sampling One of this many calls is measured
+    /// @return The new instance
+    public static JfrInstrumentation of(String packageName, String headerClassName, String threshold, int sampling) {
+        return new JfrInstrumentation(packageName, headerClassName + "Instrumentation", threshold.trim(), sampling);
+    }
+
+    /// Instruments all generated source files below a directory and writes the helper class
+    /// @param root The directory containing the generated sources
+    /// @return The number of instrumented source files
+    /// @throws IOException if a file can't be read or written
+    public int apply(Path root) throws IOException {
+        final Path dir = packageName.isEmpty() ? root : root.resolve(packageName.replace('.', '/'));
+        final Path helper = dir.resolve(className + ".java");
+        final List<Path> files;
+        try (Stream<Path> s = Files.walk(root)) {
+            files = s.filter(it -> it.getFileName().toString().endsWith(".java") && Files.isRegularFile(it) && !it.equals(helper)).toList();
+        }
+        int count = 0;
+        for (Path file : files) {
+            final String content = Files.readString(file, StandardCharsets.UTF_8);
+            if (!content.contains("downcallHandle") && !content.contains("upcallStub")) continue;
+            final String fileName = file.getFileName().toString();
+            final String rewritten = rewrite(content, fileName.substring(0, fileName.length() - ".java".length()));
+            if (rewritten.equals(content)) continue;
+            Files.writeString(file, rewritten, StandardCharsets.UTF_8);
+            count++;
+        }
+        Files.createDirectories(dir);
+        Files.writeString(helper, helperSource(), StandardCharsets.UTF_8);
+        return count;
+    }
+
+    /// Wraps the downcall handles and upcall stubs of a source file
+    /// @param source The source code
+    /// @param topLevelName The name of the file's top-level class, Jextract generates a class per callback type, so upcalls are named after it
+    /// @return The rewritten source code
+    public String rewrite(String source, String topLevelName) {
+        final Matcher downcalls = downcallPattern.matcher(source);
+        final StringBuilder result = new StringBuilder(source.length() + 256);
+        while (downcalls.find()) {
+            downcalls.appendReplacement(result, Matcher.quoteReplacement(downcalls.group(1) + className + ".downcall(\"" + downcalls.group("name") + "\", " + downcalls.group("handle") + ");"));
+        }
+        downcalls.appendTail(result);
+        final String withDowncalls = result.toString();
+        final Matcher upcalls = upcallPattern.matcher(withDowncalls);
+        result.setLength(0);
+        while (upcalls.find()) {
+            final String handle = upcalls.group("handle").trim();
+            if (handle.startsWith(className + ".upcall(")) {
+                upcalls.appendReplacement(result, Matcher.quoteReplacement(upcalls.group()));
+                continue;
+            }
+            upcalls.appendReplacement(result, Matcher.quoteReplacement(".upcallStub(" + className + ".upcall(\"" + topLevelName + "\", " + handle + "),"));
+        }
+        upcalls.appendTail(result);
+        return result.toString();
+    }
+
+    /// Generates the source of the helper class that defines the events and wraps method handles
+    /// @return The Java source code
+    public String helperSource() {
+        final String packageDeclaration = packageName.isEmpty() ? "" : "package " + packageName + ";\n\n";
+        return packageDeclaration + """
+            import java.lang.invoke.MethodHandle;
+            import java.lang.invoke.MethodHandles;
+            import java.lang.invoke.MethodType;
+            import java.util.concurrent.ThreadLocalRandom;
+            import jdk.jfr.*;
+
+            /**
+             * Records downcalls and upcalls of the generated bindings as JFR events, generated by the Gradle Jextract plugin.
+             */
+            final class %1$s {
+                private static final int SAMPLING = %3$d;
+                private static final MethodHandle BEGIN_DOWNCALL;
+                private static final MethodHandle BEGIN_UPCALL;
+                private static final MethodHandle END;
+
+                static {
+                    try {
+                        var lookup = MethodHandles.lookup();
+                        BEGIN_DOWNCALL = lookup.findStatic(%1$s.class, "beginDowncall", MethodType.methodType(Event.class, String.class));
+                        BEGIN_UPCALL = lookup.findStatic(%1$s.class, "beginUpcall", MethodType.methodType(Event.class, String.class));
+                        END = lookup.findStatic(%1$s.class, "end", MethodType.methodType(void.class, Event.class));
+                    } catch (ReflectiveOperationException e) {
+                        throw new ExceptionInInitializerError(e);
+                    }
+                }
+
+                @Name("jextract.Downcall")
+                @Label("Native Downcall")
+                @Category({"Java Application", "Native"})
+                @Threshold("%2$s")
+                @StackTrace(false)
+                static final class DowncallEvent extends Event {
+                    @Label("Function")
+                    String function;
+                }
+
+                @Name("jextract.Upcall")
+                @Label("Native Upcall")
+                @Category({"Java Application", "Native"})
+                @Threshold("%2$s")
+                @StackTrace(false)
+                static final class UpcallEvent extends Event {
+                    @Label("Callback")
+                    String callback;
+                }
+
+                private %1$s() {}
+
+                static MethodHandle downcall(String function, MethodHandle target) {
+                    return instrument(target, BEGIN_DOWNCALL.bindTo(function));
+                }
+
+                static MethodHandle upcall(String callback, MethodHandle target) {
+                    return instrument(target, BEGIN_UPCALL.bindTo(callback));
+                }
+
+                private static MethodHandle instrument(MethodHandle target, MethodHandle begin) {
+                    var returnType = target.type().returnType();
+                    var body = MethodHandles.dropArguments(target, 0, Event.class);
+                    MethodHandle cleanup;
+                    if (returnType == void.class) {
+                        cleanup = MethodHandles.dropArguments(END, 0, Throwable.class);
+                    } else {
+                        var result = MethodHandles.dropArguments(MethodHandles.identity(returnType), 0, Throwable.class);
+                        cleanup = MethodHandles.foldArguments(MethodHandles.dropArguments(result, 2, Event.class), 2, END);
+                    }
+                    return MethodHandles.foldArguments(MethodHandles.tryFinally(body, cleanup), begin);
+                }
+
+                private static boolean isSampled() {
+                    return SAMPLING == 1 || ThreadLocalRandom.current().nextInt(SAMPLING) == 0;
+                }
+
+                private static Event beginDowncall(String function) {
+                    if (!isSampled()) return null;
+                    var event = new DowncallEvent();
+                    if (!event.isEnabled()) return null;
+                    event.function = function;
+                    event.begin();
+                    return event;
+                }
+
+                private static Event beginUpcall(String callback) {
+                    if (!isSampled()) return null;
+                    var event = new UpcallEvent();
+                    if (!event.isEnabled()) return null;
+                    event.callback = callback;
+                    event.begin();
+                    return event;
+                }
+
+                private static void end(Event event) {
+                    if (event == null) return;
+                    event.end();
+                    if (event.shouldCommit()) event.commit();
+                }
+            }
+            """.formatted(className, threshold, sampling);
+    }
+}
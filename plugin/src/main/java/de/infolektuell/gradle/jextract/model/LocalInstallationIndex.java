@@ -0,0 +1,171 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+
+/// An on-disk index of facts about local Jextract installations that are expensive to find out
+///
+/// Each installation root gets its own entry file in the index directory.
+/// An entry stays valid as long as the executable and the runtime image's `lib/modules` file keep their size and modification time.
+/// The index is shared by all builds using the same cache directory, so warm builds neither search the installation nor probe its version again.
+public final class LocalInstallationIndex {
+    private static final String ALGORITHM = "SHA-256";
+
+    /// Cached facts about a local installation
+    /// @param executable The Jextract executable within the installation
+    /// @param executableSize The executable's size in bytes
+    /// @param executableModified The executable's modification time in milliseconds
+    /// @param modulesSize The size of the runtime image's modules file, -1 if it doesn't exist
+    /// @param modulesModified The modification time of the runtime image's modules file, -1 if it doesn't exist
+    /// @param fingerprint A checksum of the executable and the modules file, identifying the installed Jextract version
+    /// @param version The Jextract major version reported by the executable, 0 if it wasn't probed yet
+    public record Entry(Path executable, long executableSize, long executableModified, long modulesSize, long modulesModified, String fingerprint, int version) {
+        /// Creates a copy of this entry with a probed version
+        /// @param version The Jextract major version
+        /// @return The new entry
+        public Entry withVersion(int version) {
+            return new Entry(executable, executableSize, executableModified, modulesSize, modulesModified, fingerprint, version);
+        }
+    }
+
+    private final Path directory;
+
+    /// Creates an index that stores its entries in a given directory
+    /// @param directory The index directory
+    public LocalInstallationIndex(Path directory) {
+        this.directory = directory;
+    }
+
+    /// Finds the entry of an installation, probing and storing it if it is missing or outdated
+    /// @param root The installation directory
+    /// @param executableFilename The file name of the Jextract executable
+    /// @return The valid entry
+    /// @throws IOException if the installation doesn't contain a Jextract executable
+    public Entry get(Path root, String executableFilename) throws IOException {
+        final Optional<Entry> cached = lookup(root);
+        if (cached.isPresent()) return cached.get();
+        final Entry entry = probe(root, executableFilename);
+        store(root, entry);
+        return entry;
+    }
+
+    /// Reads the entry of an installation if it is still valid
+    /// @param root The installation directory
+    /// @return The entry, empty if it is missing or outdated
+    public Optional<Entry> lookup(Path root) {
+        final Path file = locate(root);
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        try (var r = Files.newBufferedReader(file)) {
+            var data = new Properties();
+            data.load(r);
+            var entry = new Entry(
+                Path.of(Objects.requireNonNull(data.getProperty("executable"))),
+                Long.parseLong(data.getProperty("executableSize")),
+                Long.parseLong(data.getProperty("executableModified")),
+                Long.parseLong(data.getProperty("modulesSize")),
+                Long.parseLong(data.getProperty("modulesModified")),
+                Objects.requireNonNull(data.getProperty("fingerprint")),
+                Integer.parseInt(data.getProperty("version", "0"))
+            );
+            if (!Files.isRegularFile(entry.executable)) return Optional.empty();
+            final Path modules = modulesFile(entry.executable);
+            final boolean isValid = entry.executableSize == Files.size(entry.executable)
+                && entry.executableModified == Files.getLastModifiedTime(entry.executable).toMillis()
+                && entry.modulesSize == size(modules)
+                && entry.modulesModified == modified(modules);
+            return isValid ? Optional.of(entry) : Optional.empty();
+        } catch (Exception ignored) {
+            return Optional.empty();
+        }
+    }
+
+    /// Writes the entry of an installation, replacing it atomically
+    /// @param root The installation directory
+    /// @param entry The entry to store
+    /// @throws IOException if the entry can't be written
+    public void store(Path root, Entry entry) throws IOException {
+        var data = new Properties();
+        data.setProperty("root", root.toAbsolutePath().normalize().toString());
+        data.setProperty("executable", entry.executable.toString());
+        data.setProperty("executableSize", Long.toString(entry.executableSize));
+        data.setProperty("executableModified", Long.toString(entry.executableModified));
+        data.setProperty("modulesSize", Long.toString(entry.modulesSize));
+        data.setProperty("modulesModified", Long.toString(entry.modulesModified));
+        data.setProperty("fingerprint", entry.fingerprint);
+        data.setProperty("version", Integer.toString(entry.version));
+        Files.createDirectories(directory);
+        final Path file = locate(root);
+        final Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (var w = Files.newBufferedWriter(tmp)) {
+            data.store(w, null);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /// Locates the executable of an installation and calculates its fingerprint
+    /// @param root The installation directory
+    /// @param executableFilename The file name of the Jextract executable
+    /// @return A new entry
+    /// @throws IOException if the installation doesn't contain a Jextract executable
+    public static Entry probe(Path root, String executableFilename) throws IOException {
+        final Path executable = findExecutable(root, executableFilename);
+        final Path modules = modulesFile(executable);
+        try {
+            var md = MessageDigest.getInstance(ALGORITHM);
+            md.update(DownloadClient.checksum(executable, ALGORITHM).getBytes(StandardCharsets.UTF_8));
+            if (Files.isRegularFile(modules)) md.update(DownloadClient.checksum(modules, ALGORITHM).getBytes(StandardCharsets.UTF_8));
+            return new Entry(executable, Files.size(executable), Files.getLastModifiedTime(executable).toMillis(), size(modules), modified(modules), HexFormat.of().formatHex(md.digest()), 0);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /// Finds the Jextract executable in an installation, trying the usual `bin` directory before searching the whole tree
+    /// @param root The installation directory
+    /// @param filename The file name of the Jextract executable
+    /// @return The executable's path
+    /// @throws IOException if the executable can't be found
+    public static Path findExecutable(Path root, String filename) throws IOException {
+        final Path candidate = root.resolve("bin").resolve(filename);
+        if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) return candidate;
+        PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher("glob:**/bin/" + filename);
+        try (var s = Files.walk(root)) {
+            return s.filter(it -> pathMatcher.matches(it) && Files.isExecutable(it) && Files.isRegularFile(it))
+                .findFirst()
+                .orElseThrow(() -> new IOException("Executable not found in " + root));
+        }
+    }
+
+    private Path locate(Path root) {
+        try {
+            var md = MessageDigest.getInstance(ALGORITHM);
+            var key = HexFormat.of().formatHex(md.digest(root.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)));
+            return directory.resolve(key.substring(0, 32) + ".properties");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path modulesFile(Path executable) {
+        return executable.toAbsolutePath().getParent().resolveSibling("lib").resolve("modules");
+    }
+
+    private static long size(Path file) throws IOException {
+        return Files.isRegularFile(file) ? Files.size(file) : -1;
+    }
+
+    private static long modified(Path file) throws IOException {
+        return Files.isRegularFile(file) ? Files.getLastModifiedTime(file).toMillis() : -1;
+    }
+}
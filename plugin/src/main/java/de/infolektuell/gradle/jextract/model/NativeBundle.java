@@ -0,0 +1,202 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/// Native library binaries bundled as resources, which a generated loader extracts into a content-addressed cache per user
+///
+/// The binaries are hashed at build time and listed in a manifest per platform, so bundles of several platforms can be on the same classpath.
+/// At runtime, the loader picks the manifest of the running platform and reuses the binaries from the cache if a file for their hash exists.
+/// So warm starts only check a file's existence, and extraction happens once per binary version instead of on every start.
+/// @param libraryName The name of the library, used for the resource directory
+/// @param platforms The bundled binaries in load order, keyed by [platform id][Platform#getId()]
+public record NativeBundle(String libraryName, SortedMap<String, List<Binary>> platforms) {
+    /// The name of the manifest file in the resource directory of each platform
+    public static final String MANIFEST = "natives.txt";
+
+    /// A bundled binary
+    /// @param fileName The file name, e.g., `libfoo.so`
+    /// @param sha256 The hex-encoded SHA-256 hash of the content
+    public record Binary(String fileName, String sha256) {}
+
+    /// Hashes binaries for a platform
+    /// @param libraryName The name of the library
+    /// @param platform The platform id
+    /// @param binaries The binaries in load order
+    /// @return The new bundle
+    /// @throws IOException if a binary can't be read
+    public static NativeBundle of(String libraryName, String platform, List<Path> binaries) throws IOException {
+        final List<Binary> entries = new ArrayList<>();
+        for (Path binary : binaries) entries.add(new Binary(binary.getFileName().toString(), hash(binary)));
+        return new NativeBundle(libraryName, new TreeMap<>(Map.of(platform, List.copyOf(entries))));
+    }
+
+    /// Computes the SHA-256 hash of a file
+    /// @param file The file
+    /// @return The hex-encoded hash
+    /// @throws IOException if the file can't be read
+    public static String hash(Path file) throws IOException {
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(((DigestInputStream) in).getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /// The resource path of the directory containing the manifest and the binaries, without leading slash
+    /// @return The path, e.g., `META-INF/jextract/foo`
+    public String resourceDirectory() {
+        return "META-INF/jextract/" + libraryName;
+    }
+
+    /// Copies the binaries into a resources directory and writes a manifest per platform
+    /// @param sources The binaries keyed by file name, must contain all binaries of this bundle
+    /// @param resources The resources root directory
+    /// @throws IOException if a file can't be written
+    public void write(Map<String, Path> sources, Path resources) throws IOException {
+        final Path dir = resources.resolve(resourceDirectory());
+        for (var platform : platforms.entrySet()) {
+            final Path platformDir = dir.resolve(platform.getKey());
+            Files.createDirectories(platformDir);
+            for (Binary binary : platform.getValue()) {
+                Files.copy(sources.get(binary.fileName()), platformDir.resolve(binary.fileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(platformDir.resolve(MANIFEST), manifest(platform.getKey()), StandardCharsets.UTF_8);
+        }
+    }
+
+    /// Renders the manifest of a platform, which lists its binaries as `sha256/fileName` in load order, one per line
+    /// @param platform The platform id
+    /// @return The manifest content
+    public String manifest(String platform) {
+        return platforms.getOrDefault(platform, List.of()).stream()
+            .map(b -> b.sha256() + "/" + b.fileName() + "\n")
+            .collect(Collectors.joining());
+    }
+
+    /// Generates the source of the loader class
+    /// @param packageName The package of the loader, empty for the unnamed package
+    /// @param className The simple name of the loader class
+    /// @return The Java source code
+    public String loaderSource(String packageName, String className) {
+        final String packageDeclaration = packageName.isEmpty() ? "" : "package " + packageName + ";\n\n";
+        return packageDeclaration + """
+            import java.io.BufferedReader;
+            import java.io.IOException;
+            import java.io.InputStream;
+            import java.io.InputStreamReader;
+            import java.io.UncheckedIOException;
+            import java.nio.charset.StandardCharsets;
+            import java.nio.file.*;
+            import java.security.DigestInputStream;
+            import java.security.MessageDigest;
+            import java.security.NoSuchAlgorithmException;
+            import java.util.HexFormat;
+            import java.util.List;
+            import java.util.Locale;
+
+            /**
+             * Loads the native binaries of the %1$s library, generated by the Gradle Jextract plugin.
+             * <p>
+             * Binaries are extracted once into a cache per user, keyed by their content hash, and loaded from there on later starts.
+             * The binaries of each platform may be bundled in a separate jar, only the running platform's one needs to be on the classpath.
+             * The cache location can be set with the system property {@code jextract.natives.cache}.
+             */
+            public final class %2$s {
+                private static final String BASE = "%3$s/";
+                private static boolean loaded = false;
+
+                private %2$s() {}
+
+                /**
+                 * Loads the binaries of the running platform, subsequent calls do nothing
+                 * @throws UnsatisfiedLinkError if the platform isn't supported or a binary can't be loaded
+                 */
+                public static synchronized void load() {
+                    if (loaded) return;
+                    final String platform = platform();
+                    final List<String> entries;
+                    try (InputStream in = resource(BASE + platform + "/%4$s")) {
+                        if (in == null) throw new UnsatisfiedLinkError("The %1$s library has no native binaries for " + platform);
+                        entries = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines().filter(it -> !it.isBlank()).toList();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    final Path cache = cacheDirectory();
+                    for (String entry : entries) {
+                        final String hash = entry.substring(0, entry.indexOf('/'));
+                        final String fileName = entry.substring(entry.indexOf('/') + 1);
+                        try {
+                            System.load(extract(cache.resolve(hash), BASE + platform + "/" + fileName, fileName, hash).toString());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Couldn't extract the native binary " + fileName, e);
+                        }
+                    }
+                    loaded = true;
+                }
+
+                private static Path extract(Path dir, String resource, String fileName, String hash) throws IOException {
+                    final Path file = dir.resolve(fileName);
+                    if (Files.isRegularFile(file)) return file;
+                    Files.createDirectories(dir);
+                    // Concurrent JVMs extract into their own temporary files and race to move them into place, all with the same content.
+                    final Path temp = Files.createTempFile(dir, fileName, ".tmp");
+                    try (InputStream resourceStream = resource(resource)) {
+                        if (resourceStream == null) throw new IOException("Missing resource " + resource);
+                        try (InputStream in = new DigestInputStream(resourceStream, MessageDigest.getInstance("SHA-256"))) {
+                            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                            if (!HexFormat.of().formatHex(((DigestInputStream) in).getMessageDigest().digest()).equals(hash)) throw new IOException("Hash mismatch of " + resource);
+                        } catch (NoSuchAlgorithmException e) {
+                            throw new IOException(e);
+                        }
+                        try {
+                            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                        } catch (FileAlreadyExistsException | AccessDeniedException e) {
+                            if (!Files.isRegularFile(file)) throw e;
+                        }
+                    } finally {
+                        Files.deleteIfExists(temp);
+                    }
+                    return file;
+                }
+
+                private static InputStream resource(String name) {
+                    // Resources outside of packages can be found in all modules and jars through the class loader.
+                    final ClassLoader loader = %2$s.class.getClassLoader();
+                    return loader != null ? loader.getResourceAsStream(name) : ClassLoader.getSystemResourceAsStream(name);
+                }
+
+                private static Path cacheDirectory() {
+                    final String configured = System.getProperty("jextract.natives.cache");
+                    if (configured != null) return Path.of(configured);
+                    final String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+                    final String home = System.getProperty("user.home");
+                    if (os.contains("windows")) {
+                        final String localAppData = System.getenv("LOCALAPPDATA");
+                        return Path.of(localAppData != null ? localAppData : home, "jextract", "natives");
+                    }
+                    if (os.contains("mac")) return Path.of(home, "Library", "Caches", "jextract", "natives");
+                    final String xdgCache = System.getenv("XDG_CACHE_HOME");
+                    return xdgCache != null && !xdgCache.isEmpty() ? Path.of(xdgCache, "jextract", "natives") : Path.of(home, ".cache", "jextract", "natives");
+                }
+
+                private static String platform() {
+                    final String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+                    final String arch = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+                    return (os.contains("windows") ? "windows" : os.contains("mac") ? "mac" : "linux") + "-" + (arch.contains("aarch64") ? "aarch64" : "x64");
+                }
+            }
+            """.formatted(libraryName, className, resourceDirectory(), MANIFEST);
+    }
+}
@@ -0,0 +1,189 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/// The symbols a native library binary exports, read from its ELF, Mach-O, or PE export tables
+///
+/// The binary is memory-mapped and only the tables are parsed, so no external tools like `nm` or `dumpbin` are needed.
+/// @param format The binary format, one of `ELF`, `Mach-O`, or `PE`
+/// @param symbols The names of the exported symbols, without the leading underscore Mach-O adds to C names
+public record NativeExports(String format, SortedSet<String> symbols) {
+    private static final Pattern binaryPattern = Pattern.compile(".+\\.(?:so(?:\\.\\d+)*|dylib|dll)$");
+
+    /// Checks if a file name looks like a native library binary
+    /// @param fileName The file name
+    /// @return True for `.so`, versioned `.so.1`, `.dylib`, and `.dll` files
+    public static boolean isBinary(String fileName) {
+        return binaryPattern.matcher(fileName).matches();
+    }
+
+    /// Checks if a file name is the binary of one of the given libraries
+    /// @param fileName The file name
+    /// @param libraries Library names, e.g., `foo` for `libfoo.so`, `libfoo.dylib`, and `foo.dll`, or paths starting with a colon
+    /// @return True if the file is a binary of one of the libraries, or any binary if the list is empty
+    public static boolean isBinaryOf(String fileName, List<String> libraries) {
+        if (!isBinary(fileName)) return false;
+        if (libraries.isEmpty()) return true;
+        final String stem = fileName.replaceFirst("\\.(?:so(?:\\.\\d+)*|dylib|dll)$", "");
+        return libraries.stream()
+            .map(it -> it.startsWith(":") ? Path.of(it.substring(1)).getFileName().toString() : it)
+            .anyMatch(it -> fileName.equals(it) || stem.equals(it) || stem.equals("lib" + it));
+    }
+
+    /// Joins the exports of several binaries by format, e.g., of a library and its dependencies
+    ///
+    /// Binaries of the same format are meant for the same platform, so a symbol is available there if any of them exports it.
+    /// @param binaries The exports of the binaries
+    /// @return The exported symbols of all binaries by format
+    public static SortedMap<String, SortedSet<String>> union(Collection<NativeExports> binaries) {
+        final SortedMap<String, SortedSet<String>> result = new TreeMap<>();
+        binaries.forEach(it -> result.computeIfAbsent(it.format(), k -> new TreeSet<>()).addAll(it.symbols()));
+        return result;
+    }
+
+    /// Reads the exports of a native library binary
+    /// @param path The binary
+    /// @return The exports, empty if the file isn't in a supported format
+    /// @throws IOException if the file can't be read or is corrupt
+    public static Optional<NativeExports> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < 64) return Optional.empty();
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(buffer);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt native library " + path, e);
+        }
+    }
+
+    /// Parses the exports of a binary in memory
+    /// @param buffer The binary content
+    /// @return The exports, empty if the content isn't in a supported format
+    public static Optional<NativeExports> parse(ByteBuffer buffer) {
+        final ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int magic = bytes.getInt(0);
+        if (magic == 0x464C457F) return Optional.of(new NativeExports("ELF", elf(bytes)));
+        if (magic == 0xFEEDFACF || magic == 0xFEEDFACE) return Optional.of(new NativeExports("Mach-O", machO(bytes, 0)));
+        if (magic == 0xBEBAFECA) return Optional.of(new NativeExports("Mach-O", fat(bytes)));
+        if ((magic & 0xFFFF) == 0x5A4D) return Optional.of(new NativeExports("PE", pe(bytes)));
+        return Optional.empty();
+    }
+
+    private static SortedSet<String> elf(ByteBuffer bytes) {
+        final boolean is64 = bytes.get(4) == 2;
+        bytes.order(bytes.get(5) == 2 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        final long sectionOffset = is64 ? bytes.getLong(0x28) : Integer.toUnsignedLong(bytes.getInt(0x20));
+        final int sectionSize = Short.toUnsignedInt(bytes.getShort(is64 ? 0x3A : 0x2E));
+        final int sectionCount = Short.toUnsignedInt(bytes.getShort(is64 ? 0x3C : 0x30));
+        final SortedSet<String> result = new TreeSet<>();
+        for (int i = 0; i < sectionCount; i++) {
+            final int section = Math.toIntExact(sectionOffset + (long) i * sectionSize);
+            // Only the dynamic symbol table lists the symbols visible to the dynamic linker.
+            if (bytes.getInt(section + 4) != 11) continue;
+            final long offset = is64 ? bytes.getLong(section + 0x18) : Integer.toUnsignedLong(bytes.getInt(section + 0x10));
+            final long size = is64 ? bytes.getLong(section + 0x20) : Integer.toUnsignedLong(bytes.getInt(section + 0x14));
+            final int link = bytes.getInt(section + (is64 ? 0x28 : 0x18));
+            final long entrySize = is64 ? bytes.getLong(section + 0x38) : Integer.toUnsignedLong(bytes.getInt(section + 0x24));
+            final int strings = Math.toIntExact(is64 ? bytes.getLong(Math.toIntExact(sectionOffset + (long) link * sectionSize) + 0x18) : Integer.toUnsignedLong(bytes.getInt(Math.toIntExact(sectionOffset + (long) link * sectionSize) + 0x10)));
+            for (long entry = offset + entrySize; entry + entrySize <= offset + size; entry += entrySize) {
+                final int symbol = Math.toIntExact(entry);
+                final int name = bytes.getInt(symbol);
+                final int info = Byte.toUnsignedInt(bytes.get(symbol + (is64 ? 4 : 12)));
+                final int sectionIndex = Short.toUnsignedInt(bytes.getShort(symbol + (is64 ? 6 : 14)));
+                final int binding = info >> 4;
+                final int type = info & 0xF;
+                if (sectionIndex != 0 && (binding == 1 || binding == 2) && (type == 1 || type == 2)) result.add(string(bytes, strings + name));
+            }
+        }
+        return result;
+    }
+
+    private static SortedSet<String> fat(ByteBuffer bytes) {
+        bytes.order(ByteOrder.BIG_ENDIAN);
+        final int count = bytes.getInt(4);
+        final SortedSet<String> result = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            final int offset = bytes.getInt(8 + i * 20 + 8);
+            result.addAll(machO(bytes.order(ByteOrder.LITTLE_ENDIAN), offset));
+            bytes.order(ByteOrder.BIG_ENDIAN);
+        }
+        return result;
+    }
+
+    private static SortedSet<String> machO(ByteBuffer bytes, int base) {
+        final boolean is64 = bytes.getInt(base) == 0xFEEDFACF;
+        final int commandCount = bytes.getInt(base + 16);
+        int command = base + (is64 ? 32 : 28);
+        final SortedSet<String> result = new TreeSet<>();
+        for (int i = 0; i < commandCount; i++) {
+            final int type = bytes.getInt(command);
+            if (type == 0x2) {
+                final int symbols = base + bytes.getInt(command + 8);
+                final int count = bytes.getInt(command + 12);
+                final int strings = base + bytes.getInt(command + 16);
+                final int entrySize = is64 ? 16 : 12;
+                for (int s = 0; s < count; s++) {
+                    final int entry = symbols + s * entrySize;
+                    final int nameType = Byte.toUnsignedInt(bytes.get(entry + 4));
+                    // Exported symbols are external and defined in a section.
+                    if ((nameType & 0xE0) != 0 || (nameType & 0x01) == 0 || (nameType & 0x0E) != 0x0E) continue;
+                    final String name = string(bytes, strings + bytes.getInt(entry));
+                    result.add(name.startsWith("_") ? name.substring(1) : name);
+                }
+            }
+            command += bytes.getInt(command + 4);
+        }
+        return result;
+    }
+
+    private static SortedSet<String> pe(ByteBuffer bytes) {
+        final int header = bytes.getInt(0x3C);
+        if (bytes.getInt(header) != 0x00004550) return new TreeSet<>();
+        final int sectionCount = Short.toUnsignedInt(bytes.getShort(header + 6));
+        final int optionalSize = Short.toUnsignedInt(bytes.getShort(header + 20));
+        final int optional = header + 24;
+        final boolean isPlus = Short.toUnsignedInt(bytes.getShort(optional)) == 0x20B;
+        final int exportRva = bytes.getInt(optional + (isPlus ? 112 : 96));
+        final SortedSet<String> result = new TreeSet<>();
+        if (exportRva == 0) return result;
+        final int sections = optional + optionalSize;
+        final int directory = offset(bytes, sections, sectionCount, exportRva);
+        final int nameCount = bytes.getInt(directory + 24);
+        final int names = offset(bytes, sections, sectionCount, bytes.getInt(directory + 32));
+        for (int i = 0; i < nameCount; i++) {
+            result.add(string(bytes, offset(bytes, sections, sectionCount, bytes.getInt(names + i * 4))));
+        }
+        return result;
+    }
+
+    private static int offset(ByteBuffer bytes, int sections, int count, int rva) {
+        for (int i = 0; i < count; i++) {
+            final int section = sections + i * 40;
+            final int address = bytes.getInt(section + 12);
+            final int size = Math.max(bytes.getInt(section + 8), bytes.getInt(section + 16));
+            if (Integer.compareUnsigned(rva, address) >= 0 && Integer.compareUnsigned(rva, address + size) < 0) return rva - address + bytes.getInt(section + 20);
+        }
+        throw new IllegalArgumentException("Address outside of all sections: " + rva);
+    }
+
+    private static String string(ByteBuffer bytes, int offset) {
+        int end = offset;
+        while (bytes.get(end) != 0) end++;
+        final byte[] content = new byte[end - offset];
+        bytes.get(offset, content);
+        return new String(content, StandardCharsets.UTF_8);
+    }
+}
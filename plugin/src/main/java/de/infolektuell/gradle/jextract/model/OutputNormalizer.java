@@ -0,0 +1,80 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/// Normalizes generated bindings, so identical inputs result in identical bytes on every machine
+///
+/// Source files get Unix line endings without trailing whitespace, and machine-specific directories in comments are replaced by relative paths.
+/// All files get a constant modification time, so archives built from them don't depend on when they were generated.
+/// @param directories Absolute directories to be stripped from comments, e.g., the include search path
+public record OutputNormalizer(List<Path> directories) {
+    /// The modification time set on all normalized files
+    public static final FileTime FILE_TIME = FileTime.from(LocalDateTime.of(1980, 2, 1, 0, 0).toInstant(ZoneOffset.UTC));
+    private static final Pattern commentPattern = Pattern.compile("^\\s*(?://|/\\*|\\*)");
+    private static final Pattern trailingWhitespacePattern = Pattern.compile("[ \\t]+$", Pattern.MULTILINE);
+
+    /// Creates a normalizer stripping the given directories, longer paths first so nested directories win
+    /// @param directories Absolute directories to be stripped from comments
+    /// @return The new normalizer
+    public static OutputNormalizer of(List<Path> directories) {
+        return new OutputNormalizer(directories.stream()
+            .map(it -> it.toAbsolutePath().normalize())
+            .distinct()
+            .sorted(Comparator.comparingInt((Path it) -> it.toString().length()).reversed())
+            .toList());
+    }
+
+    /// Normalizes all files below a directory
+    /// @param root The output directory
+    /// @return The number of rewritten source files
+    /// @throws IOException if a file can't be read or written
+    public int normalize(Path root) throws IOException {
+        if (!Files.isDirectory(root)) return 0;
+        final List<Path> files;
+        try (Stream<Path> s = Files.walk(root)) {
+            files = s.filter(Files::isRegularFile).toList();
+        }
+        int count = 0;
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(".java")) {
+                final String content = Files.readString(file, StandardCharsets.UTF_8);
+                final String normalized = normalizeSource(content);
+                if (!normalized.equals(content)) {
+                    Files.writeString(file, normalized, StandardCharsets.UTF_8);
+                    count++;
+                }
+            }
+            Files.setLastModifiedTime(file, FILE_TIME);
+        }
+        return count;
+    }
+
+    /// Normalizes the content of a source file
+    /// @param content The source code
+    /// @return The normalized source code
+    public String normalizeSource(String content) {
+        final String unix = trailingWhitespacePattern.matcher(content.replace("\r\n", "\n").replace('\r', '\n')).replaceAll("");
+        final StringBuilder result = new StringBuilder(unix.length());
+        unix.lines().forEach(line -> result.append(commentPattern.matcher(line).find() ? stripDirectories(line) : line).append('\n'));
+        return result.toString();
+    }
+
+    private String stripDirectories(String line) {
+        String result = line;
+        for (Path dir : directories) {
+            final String path = dir.toString();
+            result = result.replace(path + dir.getFileSystem().getSeparator(), "").replace(path.replace('\\', '/') + "/", "");
+        }
+        return result;
+    }
+}
@@ -1,5 +1,7 @@
 package de.infolektuell.gradle.jextract.model;
 
+import java.util.Locale;
+
 /// Describes a platform where jextract can be installed and run.
 /// @param operatingSystem Indicates the platform's operating system
 /// @param architecture    Indicates the platform's processor architecture
@@ -77,6 +79,25 @@ public record Platform(OperatingSystem operatingSystem, Architecture architectur
         return architecture == Architecture.X64;
     }
 
+    /// A short identifier of the platform, e.g., `linux-x64` or `mac-aarch64`.
+    /// @return The lower case names of the operating system and architecture, separated by a hyphen.
+    public String getId() {
+        return operatingSystem.name().toLowerCase(Locale.ROOT) + "-" + architecture.name().toLowerCase(Locale.ROOT);
+    }
+
+    /// Parses a platform identifier as returned by [#getId()].
+    /// @param id The identifier, e.g., `linux-x64` or `mac-aarch64`.
+    /// @return The platform.
+    /// @throws IllegalArgumentException if the identifier doesn't denote a known platform.
+    public static Platform of(String id) {
+        final String[] parts = id.toUpperCase(Locale.ROOT).split("-", 2);
+        try {
+            return new Platform(OperatingSystem.valueOf(parts[0]), Architecture.valueOf(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Unknown platform " + id + ", expected <windows|mac|linux>-<x64|aarch64>", e);
+        }
+    }
+
     /// Tries to infer the current running platform.
     /// @return The inferred platform, Linux on X64 by default.
     public static Platform getCurrentPlatform() {
@@ -0,0 +1,98 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/// Partitions the symbols of a header, so their bindings can be generated by several concurrent Jextract runs
+///
+/// Structs and unions are spread over all shards by a stable hash of their name, so adding a symbol doesn't move the others.
+/// All other symbols go to the first shard, because Jextract generates them into the header class, or in case of typedefs, possibly as its fields.
+/// All shards use the same header class name, and only the first shard's header class is kept when the slices are merged.
+/// Jextract rejects or duplicates structs a shard depends on but doesn't include, so [dependencies][#withDependencies(SymbolIndex)] shared between shards are moved to the first shard.
+/// @param shards The symbols of each shard
+public record ShardPlan(List<ArgFile> shards) {
+    private static final Set<String> spreadKinds = Set.of("struct", "union");
+
+    /// Partitions the given symbols into a number of shards
+    /// @param symbols The symbols to be generated
+    /// @param count The number of shards
+    /// @return The new plan
+    public static ShardPlan partition(ArgFile symbols, int count) {
+        if (count < 1) throw new IllegalArgumentException("The number of shards must be positive.");
+        final List<List<ArgFile.Entry>> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) entries.add(new ArrayList<>());
+        symbols.entries().stream().distinct().forEach(e -> {
+            final int shard = spreadKinds.contains(e.kind()) ? Math.floorMod(e.name().hashCode(), count) : 0;
+            entries.get(shard).add(new ArgFile.Entry(e.kind(), e.name(), null));
+        });
+        return new ShardPlan(entries.stream().map(ArgFile::new).toList());
+    }
+
+    /// Resolves the dependencies of the symbols in each shard
+    ///
+    /// A struct, union, or typedef that a shard depends on but another shard owns is moved to the first shard, which generates it once.
+    /// Each shard then includes its dependencies in its filter, so Jextract accepts the run, and the copies of the first shard take precedence when the slices are merged.
+    /// If all symbols end up in the first shard, the other shards are empty and generating the shards is pointless.
+    /// @param index The symbol index of the header
+    /// @return A plan with the symbols to include in each shard's run
+    public ShardPlan withDependencies(SymbolIndex index) {
+        final Map<String, ArgFile.Entry> entries = new HashMap<>();
+        final Map<String, Integer> owners = new HashMap<>();
+        final List<Set<String>> owned = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            final Set<String> keys = new LinkedHashSet<>();
+            for (ArgFile.Entry e : shards.get(i).entries()) {
+                final String key = SymbolIndex.key(e.kind(), e.name());
+                entries.putIfAbsent(key, e);
+                if (owners.putIfAbsent(key, i) == null) keys.add(key);
+            }
+            owned.add(keys);
+        }
+        boolean isMoved = true;
+        while (isMoved) {
+            isMoved = false;
+            for (int i = 0; i < owned.size(); i++) {
+                for (ArgFile.Entry dependency : index.closure(shard(owned.get(i), entries)).entries()) {
+                    final String key = SymbolIndex.key(dependency.kind(), dependency.name());
+                    final Integer owner = owners.get(key);
+                    if (owner != null && (owner == i || owner == 0)) continue;
+                    if (owner != null) owned.get(owner).remove(key);
+                    owned.getFirst().add(key);
+                    owners.put(key, 0);
+                    entries.putIfAbsent(key, new ArgFile.Entry(dependency.kind(), dependency.name(), null));
+                    isMoved = true;
+                }
+            }
+        }
+        return new ShardPlan(owned.stream()
+            .map(keys -> new ArgFile(index.closure(shard(keys, entries)).entries().stream().map(e -> new ArgFile.Entry(e.kind(), e.name(), null)).toList()))
+            .toList());
+    }
+
+    /// Counts the shards that need a Jextract run
+    /// @return The number of shards with at least one symbol
+    public long activeShards() {
+        return shards.stream().filter(it -> !it.entries().isEmpty()).count();
+    }
+
+    private static ArgFile shard(Set<String> keys, Map<String, ArgFile.Entry> entries) {
+        return new ArgFile(keys.stream().map(entries::get).toList());
+    }
+
+    /// Derives the header class name the way Jextract does if it isn't configured
+    /// @param header The header file
+    /// @return The header class name, e.g., `foo_h` for `foo.h`
+    public static String headerClassName(Path header) {
+        final String name = header.getFileName().toString().replaceAll("[^A-Za-z0-9_$]", "_");
+        return Character.isJavaIdentifierStart(name.charAt(0)) ? name : "_" + name;
+    }
+
+    /// Checks if a generated file belongs to the header class, which Jextract may split into several classes
+    /// @param fileName The file name of a generated source or class file
+    /// @param headerClassName The header class name
+    /// @return true if the file is part of the header class
+    public static boolean isHeaderClassFile(String fileName, String headerClassName) {
+        return Pattern.compile("^" + Pattern.quote(headerClassName) + "(?:_\\d+)?(?:[$.].*)?$").matcher(fileName).matches();
+    }
+}
@@ -0,0 +1,256 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/// A compact index of all symbols a library header declares, built from a `--dump-includes` arg file
+///
+/// Besides kind, name, and declaring header, each symbol records the structs, unions, and typedefs its declaration refers to.
+/// These dependencies are found by a lightweight scan of the declaring headers, which doesn't expand macros, so they are a best-effort approximation.
+/// The index is stored in a binary format that loads in milliseconds even for headers with many thousands of symbols.
+public final class SymbolIndex {
+    private static final int MAGIC = 0x4A585349;
+    private static final int FORMAT_VERSION = 1;
+    private static final Set<String> TYPE_KINDS = Set.of("struct", "union", "typedef");
+    private static final Pattern commentPattern = Pattern.compile("/\\*.*?\\*/|//[^\\n]*", Pattern.DOTALL);
+    private static final Pattern directivePattern = Pattern.compile("^[ \\t]*#(?:[^\\n]*\\\\\\n)*[^\\n]*", Pattern.MULTILINE);
+    private static final Pattern literalPattern = Pattern.compile("\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'");
+    private static final Pattern tagPattern = Pattern.compile("\\b(struct|union)\\s+([A-Za-z_]\\w*)(\\s*\\{)?");
+    private static final Pattern identifierPattern = Pattern.compile("\\b[A-Za-z_]\\w*\\b");
+    private final List<Symbol> symbols;
+    private final Map<String, Symbol> byKey = new HashMap<>();
+
+    /// A symbol of the index
+    /// @param kind The symbol's kind, e.g., function, struct, or typedef
+    /// @param name The symbol's name
+    /// @param header The header file declaring the symbol, if known
+    /// @param dependencies The keys of structs, unions, and typedefs the declaration refers to, see [#key(String, String)]
+    public record Symbol(String kind, String name, @Nullable String header, List<String> dependencies) {
+        /// The key identifying this symbol in the index
+        /// @return The key, e.g., `struct foo`
+        public String key() { return SymbolIndex.key(kind, name); }
+
+        /// Converts this symbol into an arg file entry
+        /// @return The entry
+        public ArgFile.Entry toEntry() { return new ArgFile.Entry(kind, name, header); }
+    }
+
+    /// Creates an index
+    /// @param symbols The symbols in dump order
+    public SymbolIndex(List<Symbol> symbols) {
+        this.symbols = List.copyOf(symbols);
+        this.symbols.forEach(it -> byKey.putIfAbsent(it.key(), it));
+    }
+
+    /// All symbols of the index
+    /// @return The symbols in dump order
+    public List<Symbol> symbols() { return symbols; }
+
+    /// Creates the key of a symbol
+    /// @param kind The symbol's kind
+    /// @param name The symbol's name
+    /// @return The key, e.g., `struct foo`
+    public static String key(String kind, String name) { return kind + " " + name; }
+
+    /// Builds an index from a dump, reading the declaring headers to find the dependencies of each symbol
+    /// @param dump The symbols dumped by `--dump-includes`
+    /// @return The index
+    public static SymbolIndex of(ArgFile dump) {
+        final Map<String, Set<String>> typeNames = new HashMap<>();
+        dump.entries().stream().filter(e -> TYPE_KINDS.contains(e.kind())).forEach(e -> typeNames.computeIfAbsent(e.kind(), k -> new HashSet<>()).add(e.name()));
+        final Map<String, List<String>> declarations = new HashMap<>();
+        final List<Symbol> symbols = new ArrayList<>();
+        final Set<String> seen = new HashSet<>();
+        for (ArgFile.Entry entry : dump.entries()) {
+            if (!seen.add(key(entry.kind(), entry.name()))) continue;
+            final List<String> candidates = entry.header() == null ? List.of() : declarations.computeIfAbsent(entry.header(), SymbolIndex::readDeclarations);
+            symbols.add(new Symbol(entry.kind(), entry.name(), entry.header(), dependencies(entry.kind(), entry.name(), candidates, typeNames)));
+        }
+        return new SymbolIndex(symbols);
+    }
+
+    /// Reads an index file
+    /// @param path The file to read
+    /// @return The index
+    /// @throws IOException if the file can't be read or has an unknown format
+    public static SymbolIndex read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) throw new IOException("Unknown symbol index format: " + path);
+            final String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) strings[i] = in.readUTF();
+            final int count = in.readInt();
+            final int[][] dependencies = new int[count][];
+            final String[][] fields = new String[count][];
+            for (int i = 0; i < count; i++) {
+                final int header = in.readInt();
+                fields[i] = new String[]{strings[in.readInt()], strings[in.readInt()], header < 0 ? null : strings[header]};
+                dependencies[i] = new int[in.readInt()];
+                for (int j = 0; j < dependencies[i].length; j++) dependencies[i][j] = in.readInt();
+            }
+            final List<Symbol> symbols = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                symbols.add(new Symbol(fields[i][0], fields[i][1], fields[i][2], Arrays.stream(dependencies[i]).mapToObj(d -> key(fields[d][0], fields[d][1])).toList()));
+            }
+            return new SymbolIndex(symbols);
+        }
+    }
+
+    /// Writes this index in its binary format, strings are stored once and symbols refer to each other by position
+    /// @param path The file to write
+    /// @throws IOException if the file can't be written
+    public void write(Path path) throws IOException {
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        final Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            final Symbol symbol = symbols.get(i);
+            positions.put(symbol.key(), i);
+            strings.putIfAbsent(symbol.kind(), strings.size());
+            strings.putIfAbsent(symbol.name(), strings.size());
+            if (symbol.header() != null) strings.putIfAbsent(symbol.header(), strings.size());
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) out.writeUTF(s);
+            out.writeInt(symbols.size());
+            for (Symbol symbol : symbols) {
+                out.writeInt(symbol.header() == null ? -1 : strings.get(symbol.header()));
+                out.writeInt(strings.get(symbol.kind()));
+                out.writeInt(strings.get(symbol.name()));
+                final List<Integer> dependencies = symbol.dependencies().stream().map(positions::get).filter(Objects::nonNull).toList();
+                out.writeInt(dependencies.size());
+                for (int d : dependencies) out.writeInt(d);
+            }
+        }
+    }
+
+    /// Finds a symbol by its kind and name
+    /// @param kind The symbol's kind
+    /// @param name The symbol's name
+    /// @return The symbol, empty if the header doesn't declare it
+    public Optional<Symbol> find(String kind, String name) {
+        return Optional.ofNullable(byKey.get(key(kind, name)));
+    }
+
+    /// Finds all symbols with the given name, regardless of their kind
+    /// @param name The symbol's name
+    /// @return The symbols in index order
+    public List<Symbol> findByName(String name) {
+        return symbols.stream().filter(it -> it.name().equals(name)).toList();
+    }
+
+    /// Finds the entries of an arg file the header doesn't declare
+    /// @param whitelist The arg file to check, e.g., a whitelist
+    /// @return The unknown entries in file order
+    public List<ArgFile.Entry> unknown(ArgFile whitelist) {
+        return whitelist.entries().stream().filter(e -> !byKey.containsKey(key(e.kind(), e.name()))).toList();
+    }
+
+    /// Expands an arg file with the structs, unions, and typedefs its symbols depend on, directly or transitively
+    /// @param whitelist The arg file to expand, e.g., a whitelist
+    /// @return An arg file with the original entries, followed by the added dependencies
+    public ArgFile closure(ArgFile whitelist) {
+        final Set<String> keys = new LinkedHashSet<>();
+        final List<ArgFile.Entry> result = new ArrayList<>();
+        final Deque<String> queue = new ArrayDeque<>();
+        whitelist.entries().forEach(e -> {
+            if (keys.add(key(e.kind(), e.name()))) result.add(e);
+            queue.add(key(e.kind(), e.name()));
+        });
+        while (!queue.isEmpty()) {
+            final Symbol symbol = byKey.get(queue.poll());
+            if (symbol == null) continue;
+            for (String dependency : symbol.dependencies()) {
+                if (!keys.add(dependency)) continue;
+                final Symbol resolved = byKey.get(dependency);
+                if (resolved == null) continue;
+                result.add(resolved.toEntry());
+                queue.add(dependency);
+            }
+        }
+        return new ArgFile(List.copyOf(result));
+    }
+
+    /// Splits the source of a header into top-level declarations without comments, literals, and preprocessor directives
+    /// @param source The header source
+    /// @return The declarations in source order
+    static List<String> declarations(String source) {
+        final String code = literalPattern.matcher(directivePattern.matcher(commentPattern.matcher(source).replaceAll(" ")).replaceAll(" ")).replaceAll("\"\"");
+        final List<String> result = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        int depth = 0;
+        for (char c : code.toCharArray()) {
+            current.append(c);
+            if (c == '{') depth++;
+            else if (c == '}') depth = Math.max(0, depth - 1);
+            if (depth > 0) continue;
+            final String text = current.toString().strip();
+            final boolean isFunctionBody = c == '}' && text.indexOf('(') >= 0 && text.indexOf('(') < text.indexOf('{') && !text.startsWith("typedef");
+            if (c == ';' || isFunctionBody) {
+                if (!text.isEmpty()) result.add(text.replaceAll("\\s+", " "));
+                current.setLength(0);
+            }
+        }
+        return result;
+    }
+
+    /// Finds the structs, unions, and typedefs a symbol's declaration refers to
+    /// @param kind The symbol's kind
+    /// @param name The symbol's name
+    /// @param declarations The top-level declarations of the declaring header
+    /// @param typeNames The names of all structs, unions, and typedefs by kind
+    /// @return The keys of the dependencies, sorted
+    static List<String> dependencies(String kind, String name, List<String> declarations, Map<String, Set<String>> typeNames) {
+        final SortedSet<String> result = new TreeSet<>();
+        declarations.stream().filter(it -> declares(it, kind, name)).forEach(declaration -> {
+            final String code = switch (kind) {
+                case "typedef" -> declaration;
+                case "struct", "union" -> declaration.substring(declaration.indexOf('{', declaration.indexOf(name)));
+                default -> declaration.replaceAll("\\{.*", "");
+            };
+            final Set<Integer> tagged = new HashSet<>();
+            final Matcher tags = tagPattern.matcher(code);
+            while (tags.find()) {
+                tagged.add(tags.start(2));
+                final boolean isSelf = tags.group(1).equals(kind) && tags.group(2).equals(name);
+                if (!isSelf && typeNames.getOrDefault(tags.group(1), Set.of()).contains(tags.group(2))) result.add(key(tags.group(1), tags.group(2)));
+            }
+            final Matcher identifiers = identifierPattern.matcher(code);
+            while (identifiers.find()) {
+                if (tagged.contains(identifiers.start())) continue;
+                final String identifier = identifiers.group();
+                final boolean isSelf = kind.equals("typedef") && identifier.equals(name);
+                if (!isSelf && typeNames.getOrDefault("typedef", Set.of()).contains(identifier)) result.add(key("typedef", identifier));
+            }
+        });
+        return List.copyOf(result);
+    }
+
+    private static boolean declares(String declaration, String kind, String name) {
+        final String quoted = Pattern.quote(name);
+        final boolean isTypedef = declaration.startsWith("typedef ");
+        return switch (kind) {
+            case "struct", "union" -> Pattern.compile("\\b" + kind + "\\s+" + quoted + "\\s*\\{").matcher(declaration).find();
+            case "typedef" -> isTypedef && Pattern.compile("(?:\\b" + quoted + "\\s*(?:\\[[^\\]]*]\\s*)*;$|\\(\\s*\\*\\s*" + quoted + "\\s*\\))").matcher(declaration).find();
+            case "function" -> !isTypedef && Pattern.compile("\\b" + quoted + "\\s*\\(").matcher(declaration).find();
+            case "var" -> !isTypedef && Pattern.compile("\\b" + quoted + "\\s*(?:\\[[^\\]]*]\\s*)*(?:=.*)?;$").matcher(declaration).find();
+            default -> false;
+        };
+    }
+
+    private static List<String> readDeclarations(String header) {
+        try {
+            return declarations(Files.readString(Path.of(header)));
+        } catch (IOException | RuntimeException ignored) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+/// Extracts gzip-compressed tar archives in a single streaming pass
+///
+/// Small files are read into memory and written in parallel while the archive is still being decompressed.
+/// The archive is unpacked into a temporary sibling directory that replaces the target atomically once extraction succeeded,
+/// so the target never contains a partial installation.
+public final class TarGzExtractor {
+    private static final int BLOCK_SIZE = 512;
+    private static final int PARALLEL_THRESHOLD = 8 << 20;
+    private static final int MAX_PENDING_BYTES = 64 << 20;
+
+    private record Entry(String name, int mode, long size, char type, String linkName) {}
+
+    private record Link(Path link, String target, boolean symbolic) {}
+
+    private TarGzExtractor() {}
+
+    /// Extracts an archive into a target directory, replacing its previous content
+    /// @param archive The tar.gz file to be extracted
+    /// @param target The directory where the archive content is placed
+    /// @param executableFilename The file name of an executable to be located in a `bin` directory while extracting
+    /// @return The executable's path relative to the target, empty if the archive doesn't contain it
+    /// @throws IOException if the archive is malformed or a file can't be written
+    public static Optional<Path> extract(Path archive, Path target, String executableFilename) throws IOException {
+        final Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path tmp = Files.createTempDirectory(parent, target.getFileName() + ".tmp");
+        try {
+            final Optional<Path> executable = extractInto(archive, tmp, executableFilename);
+            deleteRecursively(target);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            return executable;
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(tmp);
+            throw e;
+        }
+    }
+
+    /// Deletes a file or a directory including its content if it exists
+    /// @param path The path to delete
+    /// @throws IOException if a file can't be deleted
+    public static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) return;
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) throw exc;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Optional<Path> extractInto(Path archive, Path root, String executableFilename) throws IOException {
+        final boolean isPosix = root.getFileSystem().supportedFileAttributeViews().contains("posix");
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        final Semaphore pendingBytes = new Semaphore(MAX_PENDING_BYTES);
+        final List<Future<?>> writes = new ArrayList<>();
+        final List<Link> links = new ArrayList<>();
+        Path executable = null;
+        try (InputStream input = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(archive), 1 << 16), 1 << 16)) {
+            String longName = null;
+            String longLinkName = null;
+            Map<String, String> pax = Map.of();
+            Entry entry;
+            while ((entry = readEntry(input)) != null) {
+                switch (entry.type) {
+                    case 'L' -> { longName = readString(input, entry.size); continue; }
+                    case 'K' -> { longLinkName = readString(input, entry.size); continue; }
+                    case 'x' -> { pax = parsePax(readString(input, entry.size)); continue; }
+                    case 'g' -> { skip(input, padded(entry.size)); continue; }
+                    default -> {}
+                }
+                final String name = Objects.requireNonNullElse(pax.get("path"), Objects.requireNonNullElse(longName, entry.name));
+                final String linkName = Objects.requireNonNullElse(pax.get("linkpath"), Objects.requireNonNullElse(longLinkName, entry.linkName));
+                final long size = pax.containsKey("size") ? Long.parseLong(pax.get("size")) : entry.size;
+                longName = null;
+                longLinkName = null;
+                pax = Map.of();
+
+                final Path path = resolve(root, name);
+                switch (entry.type) {
+                    case '5' -> {
+                        Files.createDirectories(path);
+                        skip(input, padded(size));
+                    }
+                    case '1', '2' -> {
+                        Files.createDirectories(path.getParent());
+                        links.add(new Link(path, linkName, entry.type == '2'));
+                        skip(input, padded(size));
+                    }
+                    case '0', '\0', '7' -> {
+                        Files.createDirectories(path.getParent());
+                        final int mode = entry.mode;
+                        if (size <= PARALLEL_THRESHOLD) {
+                            final int permits = (int) Math.max(size, 1);
+                            pendingBytes.acquireUninterruptibly(permits);
+                            final byte[] content = readFully(input, (int) size);
+                            skip(input, padded(size) - size);
+                            writes.add(executor.submit(() -> {
+                                try {
+                                    Files.write(path, content);
+                                    if (isPosix) Files.setPosixFilePermissions(path, permissions(mode));
+                                    return null;
+                                } finally {
+                                    pendingBytes.release(permits);
+                                }
+                            }));
+                        } else {
+                            try (OutputStream out = Files.newOutputStream(path)) {
+                                copy(input, out, size);
+                            }
+                            if (isPosix) Files.setPosixFilePermissions(path, permissions(mode));
+                            skip(input, padded(size) - size);
+                        }
+                        if (executable == null && isExecutable(root.relativize(path), executableFilename)) executable = root.relativize(path);
+                    }
+                    default -> skip(input, padded(size));
+                }
+            }
+            for (Future<?> write : writes) write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting " + archive, e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Couldn't extract " + archive, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        for (Link link : links) {
+            if (link.symbolic) {
+                Files.createSymbolicLink(link.link, Path.of(link.target));
+            } else {
+                Files.copy(resolve(root, link.target), link.link, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+        return Optional.ofNullable(executable);
+    }
+
+    private static boolean isExecutable(Path relativePath, String executableFilename) {
+        final int count = relativePath.getNameCount();
+        return count >= 2
+            && relativePath.getFileName().toString().equals(executableFilename)
+            && relativePath.getName(count - 2).toString().equals("bin");
+    }
+
+    private static Path resolve(Path root, String name) throws IOException {
+        final Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) throw new IOException("Archive entry is outside of the target directory: " + name);
+        return path;
+    }
+
+    private static Entry readEntry(InputStream input) throws IOException {
+        final byte[] header = input.readNBytes(BLOCK_SIZE);
+        if (header.length < BLOCK_SIZE) return null;
+        boolean isEmpty = true;
+        for (byte b : header) {
+            if (b != 0) {
+                isEmpty = false;
+                break;
+            }
+        }
+        if (isEmpty) return null;
+        String name = field(header, 0, 100);
+        final String magic = field(header, 257, 6);
+        if (magic.startsWith("ustar")) {
+            final String prefix = field(header, 345, 155);
+            if (!prefix.isEmpty()) name = prefix + "/" + name;
+        }
+        return new Entry(name, (int) number(header, 100, 8), number(header, 124, 12), (char) header[156], field(header, 157, 100));
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) end++;
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long number(byte[] header, int offset, int length) {
+        // GNU base-256 encoding for large values
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) value = (value << 8) | (header[i] & 0xff);
+            return value;
+        }
+        final String octal = field(header, offset, length).trim();
+        return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+    }
+
+    private static Map<String, String> parsePax(String records) {
+        final Map<String, String> result = new HashMap<>();
+        int pos = 0;
+        final byte[] bytes = records.getBytes(StandardCharsets.UTF_8);
+        while (pos < bytes.length) {
+            int space = pos;
+            while (space < bytes.length && bytes[space] != ' ') space++;
+            if (space >= bytes.length) break;
+            final int length = Integer.parseInt(new String(bytes, pos, space - pos, StandardCharsets.UTF_8));
+            final String record = new String(bytes, space + 1, length - (space - pos) - 2, StandardCharsets.UTF_8);
+            final int equals = record.indexOf('=');
+            if (equals > 0) result.put(record.substring(0, equals), record.substring(equals + 1));
+            pos += length;
+        }
+        return result;
+    }
+
+    private static long padded(long size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    private static String readString(InputStream input, long size) throws IOException {
+        final byte[] content = readFully(input, (int) size);
+        skip(input, padded(size) - size);
+        return field(content, 0, content.length);
+    }
+
+    private static byte[] readFully(InputStream input, int size) throws IOException {
+        final byte[] content = input.readNBytes(size);
+        if (content.length < size) throw new EOFException("Unexpected end of archive");
+        return content;
+    }
+
+    private static void copy(InputStream input, OutputStream output, long size) throws IOException {
+        final byte[] buffer = new byte[1 << 16];
+        long remaining = size;
+        while (remaining > 0) {
+            final int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) throw new EOFException("Unexpected end of archive");
+            output.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void skip(InputStream input, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            final long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                if (input.read() < 0) throw new EOFException("Unexpected end of archive");
+                remaining--;
+            } else {
+                remaining -= skipped;
+            }
+        }
+    }
+
+    private static Set<PosixFilePermission> permissions(int mode) {
+        final Set<PosixFilePermission> result = EnumSet.noneOf(PosixFilePermission.class);
+        final PosixFilePermission[] values = PosixFilePermission.values();
+        // PosixFilePermission is ordered from OWNER_READ (0400) down to OTHERS_EXECUTE (0001)
+        for (int i = 0; i < values.length; i++) {
+            if ((mode & (1 << (values.length - 1 - i))) != 0) result.add(values[i]);
+        }
+        // Extracted files must stay writable for the owner, so installations can be replaced later.
+        result.add(PosixFilePermission.OWNER_WRITE);
+        result.add(PosixFilePermission.OWNER_READ);
+        return result;
+    }
+}
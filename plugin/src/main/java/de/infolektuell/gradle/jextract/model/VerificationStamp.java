@@ -0,0 +1,80 @@
+package de.infolektuell.gradle.jextract.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+
+/// Records that a file was verified against a checksum, so it needn't be hashed again as long as it is unchanged
+/// @param size The file size in bytes at verification time
+/// @param lastModified The file's modification time in milliseconds at verification time
+/// @param algorithm The algorithm that was used to generate the checksum, e.g., SHA-256
+/// @param checksum The checksum the file was verified against
+public record VerificationStamp(long size, long lastModified, String algorithm, String checksum) {
+    /// Creates a stamp from the current attributes of a file
+    /// @param file The verified file
+    /// @param resource The resource the file was verified against
+    /// @return The stamp
+    /// @throws IOException if the file attributes can't be read
+    public static VerificationStamp of(Path file, DownloadClient.Resource resource) throws IOException {
+        return new VerificationStamp(Files.size(file), Files.getLastModifiedTime(file).toMillis(), resource.algorithm(), resource.checksum());
+    }
+
+    /// Reads a stamp from a properties file
+    /// @param path The stamp file
+    /// @return The stamp if the file exists and is well-formed, empty otherwise
+    public static Optional<VerificationStamp> read(Path path) {
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        try (var r = Files.newBufferedReader(path)) {
+            var data = new Properties();
+            data.load(r);
+            return Optional.of(new VerificationStamp(
+                Long.parseLong(data.getProperty("size")),
+                Long.parseLong(data.getProperty("lastModified")),
+                Objects.requireNonNull(data.getProperty("algorithm")),
+                Objects.requireNonNull(data.getProperty("checksum"))
+            ));
+        } catch (Exception ignored) {
+            return Optional.empty();
+        }
+    }
+
+    /// The location of the stamp file belonging to a verified file
+    /// @param file The verified file
+    /// @return A sibling path of the verified file
+    public static Path locate(Path file) {
+        return file.resolveSibling(file.getFileName() + ".stamp");
+    }
+
+    /// Checks if this stamp still describes a file that was verified against a given resource
+    /// @param file The file to check
+    /// @param resource The resource the file should match
+    /// @return True if size, modification time and expected checksum are unchanged
+    public boolean matches(Path file, DownloadClient.Resource resource) {
+        try {
+            return equals(of(file, resource));
+        } catch (IOException ignored) {
+            return false;
+        }
+    }
+
+    /// Writes this stamp into a properties file, replacing it atomically
+    /// @param path The stamp file
+    /// @throws IOException if the stamp can't be written
+    public void write(Path path) throws IOException {
+        var data = new Properties();
+        data.setProperty("size", Long.toString(size));
+        data.setProperty("lastModified", Long.toString(lastModified));
+        data.setProperty("algorithm", algorithm);
+        data.setProperty("checksum", checksum);
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try (var w = Files.newBufferedWriter(tmp)) {
+            data.store(w, null);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,22 @@
+package de.infolektuell.gradle.jextract.service;
+
+import de.infolektuell.gradle.jextract.model.DirectoryIndex;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.NonNull;
+
+/// A build service that holds the [DirectoryIndex] shared by all projects of a build
+///
+/// The memoized lookups are released when the build finishes, so they don't stay in the daemon's memory.
+public abstract class DirectoryIndexService implements BuildService<BuildServiceParameters.@NonNull None> {
+    /// The name that is used to register the build service
+    public static final String SERVICE_NAME = "jextractDirectoryIndex";
+    private final DirectoryIndex index = new DirectoryIndex();
+
+    /// Used by Gradle
+    public DirectoryIndexService() { super(); }
+
+    /// The index for file lookups during this build
+    /// @return The index instance
+    public DirectoryIndex getIndex() { return index; }
+}
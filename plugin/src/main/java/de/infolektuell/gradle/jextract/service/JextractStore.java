@@ -1,9 +1,16 @@
 package de.infolektuell.gradle.jextract.service;
 
+import de.infolektuell.gradle.jextract.model.CacheLock;
 import de.infolektuell.gradle.jextract.model.DownloadClient;
+import de.infolektuell.gradle.jextract.model.InstallationMarker;
 import de.infolektuell.gradle.jextract.model.JextractDataStore;
+import de.infolektuell.gradle.jextract.model.LocalInstallationIndex;
+import de.infolektuell.gradle.jextract.model.TarGzExtractor;
+import de.infolektuell.gradle.jextract.model.VerificationStamp;
 import org.gradle.api.Action;
 import org.gradle.api.file.*;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.services.BuildService;
 import org.gradle.api.services.BuildServiceParameters;
@@ -16,20 +23,47 @@ import org.jspecify.annotations.NonNull;
 import javax.inject.Inject;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.util.HashMap;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /// A build service that downloads and manages Jextract installation. It can be injected by tasks that have to run Jextract.
-public abstract class JextractStore implements BuildService<JextractStore.@NonNull Parameters> {
+///
+/// The service is safe for concurrent use, so tasks may run Jextract in parallel.
+/// Each installation is set up at most once, while tasks needing another installation are not blocked.
+public abstract class JextractStore implements BuildService<JextractStore.@NonNull Parameters>, AutoCloseable {
     /// The name that is used to register the build service
     public static final String SERVICE_NAME = "jextractStore";
     private static final Pattern versionPattern = Pattern.compile("jextract (?<version>\\d+)\\n+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern launcherOptionsPattern = Pattern.compile("^\\s*(?:set\\s+)?JLINK_VM_OPTIONS=(?<options>.*)$", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+    private static final Pattern launcherMainPattern = Pattern.compile("\\s-m\\s+(?<main>[\\w.]+/[\\w.$]+)");
+    private static final String JEXTRACT_MODULE = "org.openjdk.jextract";
+    private static final String JEXTRACT_MAIN = JEXTRACT_MODULE + "/org.openjdk.jextract.JextractTool";
+    private static final String SHARED_ARCHIVE = "jextract.jsa";
+    private static final String SHARED_ARCHIVE_FAILED = "jextract.jsa.failed";
+    private static final String TRAINING_HEADER = """
+        #include <stddef.h>
+        #include <stdint.h>
+        #define TRAINING_MAX 16
+        typedef enum training_kind { TRAINING_A, TRAINING_B } training_kind;
+        typedef struct training_point { int32_t x, y; union { float f; double d; } value; } training_point;
+        typedef void (*training_callback)(const training_point *point, void *user_data);
+        extern const char *training_name;
+        int training_init(training_point *points, size_t count, training_callback callback, ...);
+        """;
 
     static int parseExecutableVersion(String str) {
         var matcher = versionPattern.matcher(str);
@@ -37,25 +71,33 @@ public abstract class JextractStore implements BuildService<JextractStore.@NonNu
         return Integer.parseInt(matcher.group("version"));
     }
 
-    static Path findExecutable(Path root, String filename) throws IOException {
-        PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher("glob:**/bin/" + filename);
-        try (var s = Files.walk(root)) {
-            var executable = s.filter(it -> pathMatcher.matches(it) && Files.isExecutable(it) && Files.isRegularFile(it))
-                .findFirst();
-            if (executable.isEmpty()) throw new RuntimeException("Executable not found");
-            return executable.get();
-        }
+    static String parseLauncherMain(String script) {
+        var matcher = launcherMainPattern.matcher(script);
+        return matcher.find() ? matcher.group("main") : JEXTRACT_MAIN;
+    }
+
+    static List<String> parseLauncherOptions(String script) {
+        var matcher = launcherOptionsPattern.matcher(script);
+        if (!matcher.find()) return List.of();
+        String options = matcher.group("options").trim().replaceAll("^[\"']|[\"']$", "");
+        return Arrays.stream(options.split("\\s+")).filter(it -> !it.isEmpty()).toList();
     }
 
     /// Configuration parameters for the service
     public interface Parameters extends BuildServiceParameters {
         /// A base location where the service downloads and installs Jextract
+        ///
+        /// The directory can be shared by several builds on the same machine, changes are guarded by file locks.
         /// @return A property to configure the cache directory
         DirectoryProperty getCacheDir();
 
         /// A properties file that contains custom download resources with their URL and checksum
         /// @return A property to configure a custom download distributions file
         RegularFileProperty getDistributions();
+
+        /// Whether a class data sharing archive is created for downloaded Jextract installations and used by later runs to start faster
+        /// @return A property to enable class data sharing
+        Property<@NonNull Boolean> getClassDataSharing();
     }
 
     /// Describes a local Jextract installation
@@ -64,6 +106,11 @@ public abstract class JextractStore implements BuildService<JextractStore.@NonNu
     /// @param version    The Jextract major version
     record Installation(Path root, Path executable, int version) {}
 
+    /// Describes how the Jextract tool of an installation can run in a JVM that is started with the installation's own Java launcher
+    /// @param javaExecutable The Java launcher within the installation
+    /// @param jvmArgs        The JVM options to make the Jextract module available, as used by the Jextract launcher
+    public record ToolRuntime(Path javaExecutable, List<String> jvmArgs) {}
+
     /// Describes a local Jextract installation that was downloaded from a distribution resource
     /// @param resource     The download resource jextract was downloaded from
     /// @param archive      The path to the downloaded archive file
@@ -74,23 +121,35 @@ public abstract class JextractStore implements BuildService<JextractStore.@NonNu
     private final DownloadClient downloadClient;
     private final Map<Integer, RemoteInstallation> remoteInstallations;
     private final Map<Path, Installation> localInstallations;
+    private final Map<Object, ReentrantLock> installLocks;
 
     /// Used by Gradle
     public JextractStore() {
         super();
         this.dataStore = getParameters().getDistributions().isPresent() ? JextractDataStore.create(getParameters().getDistributions().get().getAsFile().toPath()) : JextractDataStore.create();
         this.downloadClient = new DownloadClient();
-        this.remoteInstallations = new HashMap<>();
-        this.localInstallations = new HashMap<>();
+        this.remoteInstallations = new ConcurrentHashMap<>();
+        this.localInstallations = new ConcurrentHashMap<>();
+        this.installLocks = new ConcurrentHashMap<>();
+    }
+
+    /// Releases resources held by the service when the build is finished
+    @Override
+    public void close() {
+        downloadClient.close();
     }
 
     /// Inject the file system operations service from Gradle
     /// @return A service instance
+    /// @deprecated The service doesn't use file system operations anymore since archives are extracted by a streaming installer, inject them where needed instead.
+    @Deprecated
     @Inject
     protected abstract FileSystemOperations getFileSystem();
 
     /// Inject the archive operations service from Gradle
     /// @return A service instance
+    /// @deprecated The service doesn't use archive operations anymore since archives are extracted by a streaming installer, inject them where needed instead.
+    @Deprecated
     @Inject
     protected abstract ArchiveOperations getArchives();
 
@@ -111,6 +170,18 @@ public abstract class JextractStore implements BuildService<JextractStore.@NonNu
         return getParameters().getCacheDir().dir("installation");
     }
 
+    /// The directory for lock files guarding downloads and installations within the cache directory
+    /// @return A provider for the directory
+    protected Provider<@NonNull Directory> getLocksDir() {
+        return getParameters().getCacheDir().dir("locks");
+    }
+
+    /// The directory for the index of local installations within the cache directory
+    /// @return A provider for the directory
+    protected Provider<@NonNull Directory> getLocalIndexDir() {
+        return getParameters().getCacheDir().dir("local");
+    }
+
     /// Finds the best Jextract major version for a given [Java language version][JavaLanguageVersion]
     /// @param javaLanguageVersion The Java language version to get a matching Jextract version for
     /// @return The Jextract version as an integer
@@ -125,6 +196,144 @@ public abstract class JextractStore implements BuildService<JextractStore.@NonNu
         return install(path).version;
     }
 
+    /// Finds the runtime to run Jextract as a tool within a long-living JVM, e.g., a Gradle worker process
+    ///
+    /// Jextract is a `java.util.spi.ToolProvider` in the installation's runtime image.
+    /// The runtime is only available for Jextract 21 and above, where the image can run the plugin's classes.
+    /// @param version A Java language version that is used to select a matching Jextract installation
+    /// @return The runtime, empty if the installation doesn't support it
+    public Optional<ToolRuntime> getToolRuntime(JavaLanguageVersion version) {
+        return toolRuntime(install(version.asInt()).installation);
+    }
+
+    /// Finds the runtime to run Jextract as a tool within a long-living JVM, e.g., a Gradle worker process
+    /// @param root The installation directory where Jextract is installed
+    /// @return The runtime, empty if the installation doesn't support it
+    public Optional<ToolRuntime> getToolRuntime(Path root) {
+        return toolRuntime(install(root));
+    }
+
+    private Optional<ToolRuntime> toolRuntime(Installation installation) {
+        if (installation.version < 21) return Optional.empty();
+        final boolean isWindows = installation.executable.getFileName().toString().endsWith(".bat");
+        final Path java = installation.executable.resolveSibling(isWindows ? "java.exe" : "java");
+        if (!Files.isExecutable(java)) return Optional.empty();
+        try {
+            final List<String> jvmArgs = new ArrayList<>(parseLauncherOptions(Files.readString(installation.executable, Charset.defaultCharset())));
+            jvmArgs.add("--add-modules=" + JEXTRACT_MODULE);
+            sharedArchive(installation).ifPresent(it -> jvmArgs.add("-XX:SharedArchiveFile=" + it));
+            return Optional.of(new ToolRuntime(java, List.copyOf(jvmArgs)));
+        } catch (IOException ignored) {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Path> sharedArchive(Installation installation) {
+        if (!getParameters().getClassDataSharing().getOrElse(false)) return Optional.empty();
+        return Optional.of(installation.root.resolve(SHARED_ARCHIVE)).filter(Files::isRegularFile);
+    }
+
+    /// The command line that runs Jextract, starting with the executable
+    ///
+    /// If the installation has a class data sharing archive, Jextract is launched by the installation's Java launcher using the archive.
+    private List<String> command(Installation installation) {
+        final Optional<Path> archive = sharedArchive(installation);
+        final Optional<ToolRuntime> runtime = archive.flatMap(it -> toolRuntime(installation));
+        if (runtime.isEmpty()) return List.of(installation.executable.toAbsolutePath().toString());
+        try {
+            final List<String> command = new ArrayList<>();
+            command.add(runtime.get().javaExecutable().toAbsolutePath().toString());
+            command.addAll(runtime.get().jvmArgs());
+            command.addAll(List.of("-m", parseLauncherMain(Files.readString(installation.executable, Charset.defaultCharset()))));
+            return List.copyOf(command);
+        } catch (IOException ignored) {
+            return List.of(installation.executable.toAbsolutePath().toString());
+        }
+    }
+
+    /// Creates a class data sharing archive by running Jextract on a small header and archiving the loaded classes
+    ///
+    /// A failed attempt is recorded, so it isn't repeated by every build.
+    private void trainSharedArchive(Installation installation) {
+        final Path archive = installation.root.resolve(SHARED_ARCHIVE);
+        final Path failed = installation.root.resolve(SHARED_ARCHIVE_FAILED);
+        if (Files.exists(archive) || Files.exists(failed)) return;
+        final Optional<ToolRuntime> runtime = toolRuntime(installation);
+        if (runtime.isEmpty()) return;
+        Path temp = null;
+        try {
+            temp = Files.createTempDirectory(installation.root.getParent(), "cds");
+            final Path header = Files.writeString(temp.resolve("training.h"), TRAINING_HEADER);
+            final Path classList = temp.resolve("classes.lst");
+            final Path tempArchive = temp.resolve(SHARED_ARCHIVE);
+            final String java = runtime.get().javaExecutable().toAbsolutePath().toString();
+            final String main = parseLauncherMain(Files.readString(installation.executable, Charset.defaultCharset()));
+            final Path output = temp.resolve("output");
+            getExecOperations().exec(spec -> {
+                spec.executable(java);
+                spec.args(runtime.get().jvmArgs());
+                spec.args("-Xshare:off", "-XX:DumpLoadedClassList=" + classList, "-m", main, "--output", output.toString(), header.toString());
+                spec.setStandardOutput(OutputStream.nullOutputStream());
+                spec.setErrorOutput(OutputStream.nullOutputStream());
+            });
+            getExecOperations().exec(spec -> {
+                spec.executable(java);
+                spec.args(runtime.get().jvmArgs());
+                spec.args("-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + tempArchive);
+                spec.setStandardOutput(OutputStream.nullOutputStream());
+                spec.setErrorOutput(OutputStream.nullOutputStream());
+            });
+            Files.move(tempArchive, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            Logging.getLogger(JextractStore.class).warn("Couldn't create a class data sharing archive for Jextract {}, it will start without one", installation.version, e);
+            try {
+                Files.writeString(failed, String.valueOf(e.getMessage()));
+            } catch (IOException ignored) {
+                // Training is attempted again in the next build.
+            }
+        } finally {
+            if (temp != null) deleteRecursively(temp);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        } catch (IOException ignored) {
+            // Leftovers in the cache directory don't affect later runs.
+        }
+    }
+
+    /// Finds the Jextract executable matching a given [Java language version][JavaLanguageVersion], downloading and installing it if necessary
+    /// @param version A Java language version that is used to select a matching Jextract installation
+    /// @return The path to the executable
+    public Path getExecutable(JavaLanguageVersion version) {
+        return install(version.asInt()).installation.executable.toAbsolutePath();
+    }
+
+    /// Finds the command line to run the Jextract installation matching a given [Java language version][JavaLanguageVersion], downloading and installing it if necessary
+    ///
+    /// Unlike [#getExecutable(JavaLanguageVersion)], the command uses a class data sharing archive if available.
+    /// @param version A Java language version that is used to select a matching Jextract installation
+    /// @return The executable followed by its arguments, Jextract arguments can be appended
+    public List<String> getCommand(JavaLanguageVersion version) {
+        return command(install(version.asInt()).installation);
+    }
+
+    /// Finds the command line to run a local Jextract installation
+    /// @param root The installation directory where Jextract is installed
+    /// @return The executable followed by its arguments, Jextract arguments can be appended
+    public List<String> getCommand(Path root) {
+        return command(install(root));
+    }
+
+    /// Finds the Jextract executable of a local installation
+    /// @param root The installation directory where Jextract is installed
+    /// @return The path to the executable
+    public Path getExecutable(Path root) {
+        return install(root).executable.toAbsolutePath();
+    }
+
     /// Executes Jextract
     ///
     /// This is intended to be used by tasks.
@@ -144,53 +353,93 @@ public abstract class JextractStore implements BuildService<JextractStore.@NonNu
     /// @param action An exec spec to set command line arguments
     /// @return The exec result after Jextract was executed
     public ExecResult exec(Path root, Action<@NonNull ExecSpec> action) {
+        final List<String> command = command(install(root));
         return getExecOperations().exec(spec -> {
-            spec.executable(install(root).executable.toAbsolutePath());
+            spec.executable(command.getFirst());
+            spec.args(command.subList(1, command.size()));
             action.execute(spec);
         });
     }
 
     private ExecResult exec(int version, Action<@NonNull ExecSpec> action) {
+        final List<String> command = command(install(version).installation);
         return getExecOperations().exec(spec -> {
-            spec.executable(install(version).installation.executable.toAbsolutePath());
+            spec.executable(command.getFirst());
+            spec.args(command.subList(1, command.size()));
             action.execute(spec);
         });
     }
 
+    /// Looks up an installation in a cache or installs it while holding a lock for the given key
+    ///
+    /// Unlike [ConcurrentHashMap#computeIfAbsent], a long-running installation only blocks callers waiting for the same key.
+    private <K, V> V installOnce(Map<K, V> cache, K key, Function<K, V> installer) {
+        final V cached = cache.get(key);
+        if (cached != null) return cached;
+        final ReentrantLock lock = installLocks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            V installation = cache.get(key);
+            if (installation == null) {
+                installation = installer.apply(key);
+                cache.put(key, installation);
+            }
+            return installation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private Installation install(Path root) throws RuntimeException {
-        return localInstallations.computeIfAbsent(root, k -> {
-            try (var s = new ByteArrayOutputStream()) {
-                var executable = findExecutable(k, dataStore.getExecutableFilename());
-                getExecOperations().exec(spec -> {
-                    spec.executable(executable);
-                    spec.args("--version");
-                    spec.setErrorOutput(s);
-                });
-                var output = s.toString(Charset.defaultCharset());
-                var version = parseExecutableVersion(output);
-                return new Installation(k, executable, version);
+        return installOnce(localInstallations, root, k -> {
+            final var index = new LocalInstallationIndex(getLocalIndexDir().get().getAsFile().toPath());
+            try {
+                var entry = index.get(k, dataStore.getExecutableFilename());
+                if (entry.version() == 0) {
+                    entry = entry.withVersion(probeVersion(entry.executable()));
+                    index.store(k, entry);
+                }
+                return new Installation(k, entry.executable(), entry.version());
             } catch (Exception e) {
-                throw new RuntimeException("Root does not contain a Jextract installation");
+                throw new RuntimeException("Root does not contain a Jextract installation", e);
             }
         });
     }
 
+    private int probeVersion(Path executable) throws IOException {
+        try (var s = new ByteArrayOutputStream()) {
+            getExecOperations().exec(spec -> {
+                spec.executable(executable);
+                spec.args("--version");
+                spec.setErrorOutput(s);
+            });
+            return parseExecutableVersion(s.toString(Charset.defaultCharset()));
+        }
+    }
+
+    @SuppressWarnings("try")
     private RemoteInstallation install(int version) {
-        return remoteInstallations.computeIfAbsent(version, k -> {
+        return installOnce(remoteInstallations, version, k -> {
             final var resource = dataStore.resource(k);
-            var archive = getDownloadsDir().get().file(dataStore.filename(k)).getAsFile().toPath();
-            boolean isDownloaded = downloadClient.verify(resource, archive);
-            if (!isDownloaded) downloadClient.download(resource, archive);
+            final String filename = dataStore.filename(k);
+            var archive = getDownloadsDir().get().file(filename).getAsFile().toPath();
             var root = getInstallDir().get().dir(k.toString()).getAsFile().toPath();
-            if (!isDownloaded) {
-                getFileSystem().copy(spec -> {
-                    spec.from(getArchives().tarTree(archive.toFile()));
-                    spec.into(root);
-                });
-            }
-            try {
-                Path executable = findExecutable(root, dataStore.getExecutableFilename());
-                var installation = new Installation(root, executable, version);
+            var lockFile = getLocksDir().get().file(filename + ".lock").getAsFile().toPath();
+            try (var ignored = CacheLock.acquire(lockFile)) {
+                boolean isDownloaded = downloadClient.verify(resource, archive);
+                if (!isDownloaded) downloadClient.download(resource, archive);
+                var markerFile = InstallationMarker.locate(root);
+                var archiveStamp = VerificationStamp.of(archive, resource);
+                var marker = InstallationMarker.read(markerFile)
+                    .filter(m -> m.archive().equals(archiveStamp) && Files.isExecutable(root.resolve(m.executable())));
+                if (marker.isEmpty()) {
+                    Path executable = TarGzExtractor.extract(archive, root, dataStore.getExecutableFilename())
+                        .orElseThrow(() -> new RuntimeException("Executable not found"));
+                    marker = Optional.of(new InstallationMarker(archiveStamp, executable));
+                    marker.get().write(markerFile);
+                }
+                var installation = new Installation(root, root.resolve(marker.get().executable()), dataStore.version(k));
+                if (getParameters().getClassDataSharing().getOrElse(false)) trainSharedArchive(installation);
                 return new RemoteInstallation(resource, archive, installation);
             } catch (IOException e) {
                 throw new RuntimeException(e);
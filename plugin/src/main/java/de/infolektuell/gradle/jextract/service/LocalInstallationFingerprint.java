@@ -0,0 +1,43 @@
+package de.infolektuell.gradle.jextract.service;
+
+import de.infolektuell.gradle.jextract.model.JextractDataStore;
+import de.infolektuell.gradle.jextract.model.LocalInstallationIndex;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/// Provides a compact fingerprint of a local Jextract installation to be used as task input
+///
+/// The fingerprint is a checksum of the Jextract executable and the runtime image's `lib/modules` file.
+/// It is cached in an index within the cache directory, so it is only calculated again if one of these files changed.
+public abstract class LocalInstallationFingerprint implements ValueSource<@NonNull String, LocalInstallationFingerprint.@NonNull Parameters> {
+    /// Configuration parameters for the value source
+    public interface Parameters extends ValueSourceParameters {
+        /// The directory containing a Jextract installation
+        /// @return A property to configure the installation location
+        DirectoryProperty getLocation();
+
+        /// A base location where the fingerprint index is stored
+        /// @return A property to configure the cache directory
+        DirectoryProperty getCacheDir();
+    }
+
+    /// Used by Gradle
+    public LocalInstallationFingerprint() { super(); }
+
+    @Override
+    public String obtain() {
+        final Path root = getParameters().getLocation().get().getAsFile().toPath();
+        final var index = new LocalInstallationIndex(getParameters().getCacheDir().dir("local").get().getAsFile().toPath());
+        try {
+            return index.get(root, JextractDataStore.create().getExecutableFilename()).fingerprint();
+        } catch (IOException e) {
+            throw new GradleException(String.format("The path %s doesn't contain a Jextract installation.", root), e);
+        }
+    }
+}
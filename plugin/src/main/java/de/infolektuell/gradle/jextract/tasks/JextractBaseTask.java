@@ -1,18 +1,28 @@
 package de.infolektuell.gradle.jextract.tasks;
 
+import de.infolektuell.gradle.jextract.model.HeaderClosure;
 import de.infolektuell.gradle.jextract.service.JextractStore;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.services.ServiceReference;
 import org.gradle.api.tasks.*;
 import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.work.DisableCachingByDefault;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 import org.jspecify.annotations.NonNull;
 
+import javax.inject.Inject;
+import java.nio.file.Path;
+import java.util.List;
+
 /// Holds common properties for Jextract-related tasks, does nothing itself
 @DisableCachingByDefault(because = "Task is a base task and has no actions")
 public abstract class JextractBaseTask extends DefaultTask {
@@ -30,10 +40,16 @@ public abstract class JextractBaseTask extends DefaultTask {
     /// Configuration of a local Jextract installation
     public non-sealed interface LocalJextractInstallation extends JextractInstallation {
         /// A directory containing a JExtract installation
+        ///
+        /// The directory content isn't tracked, only its [fingerprint][#getFingerprint()].
         /// @return A property to configure the Jextract installation location
-        @InputDirectory
-        @PathSensitive(PathSensitivity.RELATIVE)
+        @Internal
         DirectoryProperty getLocation();
+
+        /// A compact fingerprint of the installation that changes when the installed Jextract version changes
+        /// @return A property to configure the fingerprint
+        @Input
+        Property<@NonNull String> getFingerprint();
     }
 
     /// Used by Gradle
@@ -50,14 +66,135 @@ public abstract class JextractBaseTask extends DefaultTask {
     public abstract Property<@NonNull JextractInstallation> getInstallation();
 
     /// All directories to append to the list of include search paths
+    ///
+    /// Their content is tracked by [#getIncludeFiles()].
     /// @return A property to configure the include search path
+    @Internal
+    public abstract ListProperty<@NonNull Directory> getIncludes();
+
+    /// A file listing the headers from the include search path that can affect the task's outputs, as recorded by [JextractIncludedHeadersTask]
+    ///
+    /// If it is set, only the listed headers are fingerprinted instead of the whole include directories.
+    /// @return A property to configure the file location
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getIncludedHeaders();
+
+    /// The files from the include search path that can affect the task's outputs
+    ///
+    /// These are the [included headers][#getIncludedHeaders()] if they are set and could be resolved.
+    /// Otherwise, all files in the include directories are considered.
+    /// @return A file collection of the tracked include files
     @InputFiles
     @PathSensitive(PathSensitivity.RELATIVE)
-    public abstract ListProperty<@NonNull Directory> getIncludes();
+    public FileCollection getIncludeFiles() {
+        final ConfigurableFileCollection files = getObjects().fileCollection();
+        final List<Directory> includes = getIncludes().get();
+        if (!getIncludedHeaders().isPresent()) return files.from(includes);
+        final var patterns = HeaderClosure.readPatterns(getIncludedHeaders().get().getAsFile().toPath(), includes.size());
+        if (patterns.isEmpty()) return files.from(includes);
+        for (int i = 0; i < includes.size(); i++) {
+            final List<String> included = patterns.get().get(i);
+            if (!included.isEmpty()) files.from(includes.get(i).getAsFileTree().matching(spec -> spec.include(included)));
+        }
+        return files;
+    }
 
     /// The library header file to generate bindings for
     /// @return A property to configure the header file
     @InputFile
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract RegularFileProperty getHeader();
+
+    /// Run Jextract in a Gradle worker process that is kept alive and reused, instead of starting the Jextract launcher for each run (Jextract 21 and above)
+    /// @return A boolean property
+    @Internal
+    public abstract Property<@NonNull Boolean> getUseWorkerProcesses();
+
+    /// Inject the object factory service
+    /// @return The injected service
+    @Inject
+    protected abstract ObjectFactory getObjects();
+
+    /// Inject the worker executor service
+    /// @return The injected service
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    /// The major version of the configured Jextract installation
+    /// @return The Jextract version as an integer
+    protected final int getJextractVersion() {
+        final JextractStore jextract = getJextractStore().get();
+        return switch (getInstallation().get()) {
+            case RemoteJextractInstallation config -> jextract.getVersion(config.getJavaLanguageVersion().get());
+            case LocalJextractInstallation config -> jextract.getVersion(config.getLocation().getAsFile().get().toPath());
+        };
+    }
+
+    /// Runs the configured Jextract installation with the given arguments and waits until it finishes
+    ///
+    /// If [worker processes][#getUseWorkerProcesses()] are enabled and supported by the installation, Jextract runs in a worker, otherwise in a new process.
+    /// @param args The command line arguments
+    protected final void runJextract(List<String> args) {
+        final JextractStore jextract = getJextractStore().get();
+        final boolean useWorkers = getUseWorkerProcesses().getOrElse(false);
+        switch (getInstallation().get()) {
+            case RemoteJextractInstallation config -> {
+                final JavaLanguageVersion version = config.getJavaLanguageVersion().get();
+                final var runtime = jextract.getToolRuntime(version).filter(it -> useWorkers);
+                if (runtime.isPresent()) submit(runtime.get(), args);
+                else jextract.exec(version, spec -> spec.args(args));
+            }
+            case LocalJextractInstallation config -> {
+                final Path installationPath = config.getLocation().getAsFile().get().toPath();
+                final var runtime = jextract.getToolRuntime(installationPath).filter(it -> useWorkers);
+                if (runtime.isPresent()) submit(runtime.get(), args);
+                else jextract.exec(installationPath, spec -> spec.args(args));
+            }
+        }
+    }
+
+    /// Runs the configured Jextract installation once for each argument list, concurrently as far as Gradle's worker limit permits, and waits until all runs finished
+    ///
+    /// If [worker processes][#getUseWorkerProcesses()] are enabled and supported by the installation, the runs use worker processes, otherwise each run starts a new process.
+    /// @param runs The command line arguments of each run
+    protected final void runJextractConcurrently(List<List<String>> runs) {
+        final JextractStore jextract = getJextractStore().get();
+        final boolean useWorkers = getUseWorkerProcesses().getOrElse(false);
+        final var runtime = switch (getInstallation().get()) {
+            case RemoteJextractInstallation config -> jextract.getToolRuntime(config.getJavaLanguageVersion().get()).filter(it -> useWorkers);
+            case LocalJextractInstallation config -> jextract.getToolRuntime(config.getLocation().getAsFile().get().toPath()).filter(it -> useWorkers);
+        };
+        if (runtime.isPresent()) {
+            final var queue = processQueue(runtime.get());
+            runs.forEach(args -> queue.submit(JextractWorkAction.class, parameters -> parameters.getArguments().set(args)));
+            queue.await();
+            return;
+        }
+        final List<String> command = switch (getInstallation().get()) {
+            case RemoteJextractInstallation config -> jextract.getCommand(config.getJavaLanguageVersion().get());
+            case LocalJextractInstallation config -> jextract.getCommand(config.getLocation().getAsFile().get().toPath());
+        };
+        final var queue = getWorkerExecutor().noIsolation();
+        runs.forEach(args -> queue.submit(JextractExecAction.class, parameters -> {
+            parameters.getExecutable().set(command.getFirst());
+            parameters.getArguments().addAll(command.subList(1, command.size()));
+            parameters.getArguments().addAll(args);
+        }));
+        queue.await();
+    }
+
+    private WorkQueue processQueue(JextractStore.ToolRuntime runtime) {
+        return getWorkerExecutor().processIsolation(spec -> spec.forkOptions(options -> {
+            options.setExecutable(runtime.javaExecutable().toFile());
+            options.jvmArgs(runtime.jvmArgs());
+        }));
+    }
+
+    private void submit(JextractStore.ToolRuntime runtime, List<String> args) {
+        final var queue = processQueue(runtime);
+        queue.submit(JextractWorkAction.class, parameters -> parameters.getArguments().set(args));
+        queue.await();
+    }
 }
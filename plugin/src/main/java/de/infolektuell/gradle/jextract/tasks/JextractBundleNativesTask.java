@@ -0,0 +1,130 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.NativeBundle;
+import de.infolektuell.gradle.jextract.model.NativeExports;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.jspecify.annotations.NonNull;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/// Bundles the native binaries of a library as resources and generates a loader class that extracts them into a content-addressed cache per user
+///
+/// The binaries are hashed at build time, so the loader only checks if a file for the hash exists on warm starts instead of copying the binary.
+@CacheableTask
+public abstract class JextractBundleNativesTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractBundleNativesTask() { super(); }
+
+    /// Native library binaries or directories containing them
+    /// @return A file collection to add binaries
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getBinaries();
+
+    /// The names of the libraries to bundle in load order, e.g., `foo` for `libfoo.so`, `libfoo.dylib`, and `foo.dll`, all binaries are bundled if empty
+    /// @return A property to configure the library names
+    @Input
+    public abstract ListProperty<@NonNull String> getLibraries();
+
+    /// The name of the library, used for the resource directory `META-INF/jextract/<name>`
+    /// @return A property to configure the name
+    @Input
+    public abstract Property<@NonNull String> getLibraryName();
+
+    /// The platform the binaries are built for, e.g., `linux-x64`
+    /// @return A property to configure the platform id
+    @Input
+    public abstract Property<@NonNull String> getPlatform();
+
+    /// The package of the loader class, empty for the unnamed package
+    /// @return A property to configure the package name
+    @Input
+    public abstract Property<@NonNull String> getTargetPackage();
+
+    /// The simple name of the loader class, no loader is generated if missing, e.g., for the binaries of another platform
+    /// @return A property to configure the class name
+    @Optional
+    @Input
+    public abstract Property<@NonNull String> getClassName();
+
+    /// The directory where to place the loader source file
+    /// @return a directory property
+    @OutputDirectory
+    public abstract DirectoryProperty getSources();
+
+    /// The directory where to place the binaries and the manifest
+    /// @return a directory property
+    @OutputDirectory
+    public abstract DirectoryProperty getResources();
+
+    /// Inject the build service for file system operations.
+    /// @return The injected build service
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    /// The task action that bundles the binaries
+    @TaskAction
+    protected final void bundle() {
+        getFileSystemOperations().delete(spec -> spec.delete(getSources().getAsFileTree(), getResources().getAsFileTree()));
+        try {
+            final Map<String, Path> binaries = binaries();
+            final NativeBundle bundle = NativeBundle.of(getLibraryName().get(), getPlatform().get(), List.copyOf(binaries.values()));
+            // Without binaries, no manifest is written, so the manifest of a platform jar on the classpath isn't shadowed.
+            if (!binaries.isEmpty()) bundle.write(binaries, getResources().get().getAsFile().toPath());
+            else if (!getBinaries().isEmpty()) getLogger().warn("No native binaries found to bundle for the {} library", getLibraryName().get());
+            if (!getClassName().isPresent()) return;
+            final String packageName = getTargetPackage().get();
+            final Path sources = getSources().get().getAsFile().toPath();
+            final Path dir = packageName.isEmpty() ? sources : sources.resolve(packageName.replace('.', '/'));
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(getClassName().get() + ".java"), bundle.loaderSource(packageName, getClassName().get()));
+        } catch (IOException e) {
+            throw new GradleException("Couldn't bundle the native binaries", e);
+        }
+    }
+
+    private Map<String, Path> binaries() throws IOException {
+        final List<String> names = getLibraries().get();
+        final List<Path> found = new ArrayList<>();
+        for (File file : getBinaries().getFiles()) {
+            final Path path = file.toPath();
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> s = Files.walk(path)) {
+                    s.filter(Files::isRegularFile).filter(it -> NativeExports.isBinaryOf(it.getFileName().toString(), names)).sorted().forEach(found::add);
+                }
+            } else if (Files.isRegularFile(path) && NativeExports.isBinaryOf(path.getFileName().toString(), names)) {
+                found.add(path);
+            }
+        }
+        // Binaries are loaded in the order of the library names, so dependencies can be listed first.
+        final Map<String, Path> result = new LinkedHashMap<>();
+        found.stream()
+            .sorted(Comparator.comparingInt(it -> order(it.getFileName().toString(), names)))
+            .forEach(it -> result.putIfAbsent(it.getFileName().toString(), it));
+        return result;
+    }
+
+    private static int order(String fileName, List<String> names) {
+        for (int i = 0; i < names.size(); i++) {
+            if (NativeExports.isBinaryOf(fileName, List.of(names.get(i)))) return i;
+        }
+        return names.size();
+    }
+}
@@ -0,0 +1,68 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import de.infolektuell.gradle.jextract.model.ClassReferences;
+import de.infolektuell.gradle.jextract.model.SymbolIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.*;
+import org.jspecify.annotations.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+
+/// Derives the minimal whitelist of a library from the compiled classes that use its bindings
+///
+/// The constant pools of the classes are scanned for references into the bindings package.
+/// The referenced symbols are expanded with the structs, unions, and typedefs they need, using the symbol index written by [JextractDumpIncludesTask].
+@CacheableTask
+public abstract class JextractDeriveWhitelistTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractDeriveWhitelistTask() { super(); }
+
+    /// The compiled classes using the bindings, directories or jars
+    /// @return A file collection to add class directories
+    @Classpath
+    public abstract ConfigurableFileCollection getConsumerClasses();
+
+    /// The symbol index of the library header
+    /// @return A property to configure the index file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSymbolIndex();
+
+    /// The package of the generated bindings, empty for the unnamed package
+    /// @return A property to configure the package name
+    @Input
+    public abstract Property<@NonNull String> getTargetPackage();
+
+    /// The simple name of the generated header class
+    /// @return A property to configure the header class name
+    @Input
+    public abstract Property<@NonNull String> getHeaderClassName();
+
+    /// The arg file to be written with the used symbols and their dependencies
+    /// @return A property to configure the file location
+    @OutputFile
+    public abstract RegularFileProperty getArgFile();
+
+    /// The task action that derives the whitelist
+    @TaskAction
+    protected final void derive() {
+        try {
+            final SymbolIndex index = SymbolIndex.read(getSymbolIndex().get().getAsFile().toPath());
+            final ClassReferences references = ClassReferences.scan(getConsumerClasses().getFiles().stream().map(File::toPath).toList());
+            final ArgFile used = index.closure(references.usedSymbols(index, getTargetPackage().get(), getHeaderClassName().get()));
+            getLogger().info("{} of {} symbols are used", used.entries().size(), index.symbols().size());
+            if (used.entries().isEmpty()) getLogger().warn("No symbols of the bindings are used, so Jextract will generate all symbols.");
+            new ArgFile(used.entries().stream().sorted(Comparator.comparing(ArgFile.Entry::kind).thenComparing(ArgFile.Entry::name)).toList())
+                .write(getArgFile().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new GradleException("Couldn't derive the whitelist from the consumer classes", e);
+        }
+    }
+}
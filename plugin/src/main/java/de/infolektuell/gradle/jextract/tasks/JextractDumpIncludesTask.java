@@ -1,13 +1,18 @@
 package de.infolektuell.gradle.jextract.tasks;
 
-import de.infolektuell.gradle.jextract.service.JextractStore;
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import de.infolektuell.gradle.jextract.model.SymbolIndex;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
-import org.gradle.process.ExecSpec;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /// Uses Jextract to dump all included symbols of a library header into an arg file
 @CacheableTask
@@ -20,22 +25,27 @@ public abstract class JextractDumpIncludesTask extends JextractBaseTask {
     @OutputFile
     public abstract RegularFileProperty getArgFile();
 
+    /// The location of a binary index of the dumped symbols and their dependencies, used to validate and expand whitelists
+    /// @return a property to configure the index location
+    @Optional
+    @OutputFile
+    public abstract RegularFileProperty getSymbolIndex();
+
     /// The task action that dumps all includes into an arg file
     @TaskAction
     protected final void dump() {
-        JextractStore jextract = getJextractStore().get();
-        switch (getInstallation().get()) {
-            case RemoteJextractInstallation config -> jextract.exec(config.getJavaLanguageVersion().get(), this::commonExec);
-            case LocalJextractInstallation config -> {
-                Path installationPath = config.getLocation().getAsFile().get().toPath();
-                jextract.exec(installationPath, this::commonExec);
+        final List<String> args = new ArrayList<>();
+        getIncludes().get().forEach(it -> args.addAll(List.of("-I", it.getAsFile().getAbsolutePath())));
+        args.addAll(List.of("--dump-includes", getArgFile().get().getAsFile().getAbsolutePath()));
+        args.add(getHeader().get().getAsFile().getAbsolutePath());
+        runJextract(args);
+        final Path argFile = getArgFile().get().getAsFile().toPath();
+        if (getSymbolIndex().isPresent()) {
+            try {
+                SymbolIndex.of(ArgFile.read(argFile)).write(getSymbolIndex().get().getAsFile().toPath());
+            } catch (IOException e) {
+                throw new GradleException("Couldn't write the symbol index", e);
             }
         }
     }
-
-    private void commonExec(ExecSpec spec) {
-        getIncludes().get().forEach(it -> spec.args("-I", it));
-        spec.args("--dump-includes", getArgFile().get());
-        spec.args(getHeader().get());
-    }
 }
@@ -0,0 +1,40 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.process.ExecOperations;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jspecify.annotations.NonNull;
+
+import javax.inject.Inject;
+
+/// Starts the Jextract launcher in a new process, so several Jextract runs of a task can be submitted to the worker API and run concurrently
+public abstract class JextractExecAction implements WorkAction<JextractExecAction.@NonNull Parameters> {
+    /// The parameters of a single Jextract invocation
+    public interface Parameters extends WorkParameters {
+        /// The absolute path to the Jextract executable
+        /// @return A property to configure the executable
+        Property<@NonNull String> getExecutable();
+
+        /// The command line arguments passed to Jextract
+        /// @return A list property to add the arguments
+        ListProperty<@NonNull String> getArguments();
+    }
+
+    /// Used by Gradle
+    public JextractExecAction() { super(); }
+
+    /// Inject the exec operations service from Gradle
+    /// @return A service instance
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Override
+    public void execute() {
+        getExecOperations().exec(spec -> {
+            spec.executable(getParameters().getExecutable().get());
+            spec.args(getParameters().getArguments().get());
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import de.infolektuell.gradle.jextract.model.SymbolIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/// Expands the whitelist of a library with the structs, unions, and typedefs its symbols need, using the symbol index written by [JextractDumpIncludesTask]
+///
+/// Whitelisted symbols the header doesn't declare fail this task before Jextract runs.
+@CacheableTask
+public abstract class JextractExpandWhitelistTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractExpandWhitelistTask() { super(); }
+
+    /// The symbol index of the library header
+    /// @return A property to configure the index file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSymbolIndex();
+
+    /// An arg file containing the whitelisted symbols, e.g., written by [JextractWhitelistTask]
+    /// @return A property to configure the whitelist file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getWhitelistFile();
+
+    /// An additional arg file with whitelisted symbols
+    /// @return A property to configure the arg file
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getArgFile();
+
+    /// The arg file with the whitelisted symbols and their dependencies
+    /// @return A property to configure the file location
+    @OutputFile
+    public abstract RegularFileProperty getExpandedArgFile();
+
+    /// The task action that expands the whitelist
+    @TaskAction
+    protected final void expand() {
+        try {
+            final SymbolIndex index = SymbolIndex.read(getSymbolIndex().get().getAsFile().toPath());
+            final ArgFile whitelist = JextractValidateWhitelistTask.whitelist(getWhitelistFile(), getArgFile());
+            final List<ArgFile.Entry> unknown = index.unknown(whitelist);
+            if (!unknown.isEmpty()) throw new GradleException(JextractValidateWhitelistTask.describe(index, unknown));
+            final ArgFile expanded = index.closure(whitelist);
+            getLogger().info("Expanded the whitelist by {} dependencies", expanded.entries().size() - whitelist.entries().size());
+            expanded.write(getExpandedArgFile().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new GradleException("Couldn't expand the whitelist", e);
+        }
+    }
+}
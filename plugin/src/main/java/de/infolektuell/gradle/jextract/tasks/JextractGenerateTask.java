@@ -1,26 +1,100 @@
 package de.infolektuell.gradle.jextract.tasks;
 
-import de.infolektuell.gradle.jextract.service.JextractStore;
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import de.infolektuell.gradle.jextract.model.AsyncWrappers;
+import de.infolektuell.gradle.jextract.model.BindingsSplit;
+import de.infolektuell.gradle.jextract.model.ClassesJar;
+import de.infolektuell.gradle.jextract.model.CriticalDowncalls;
+import de.infolektuell.gradle.jextract.model.GenerationManifest;
+import de.infolektuell.gradle.jextract.model.JfrInstrumentation;
+import de.infolektuell.gradle.jextract.model.OutputNormalizer;
+import de.infolektuell.gradle.jextract.model.ShardPlan;
+import de.infolektuell.gradle.jextract.model.SymbolIndex;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.*;
-import org.gradle.jvm.toolchain.JavaLanguageVersion;
-import org.gradle.process.ExecSpec;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 /// Task that uses Jextract to generate Java bindings for given C headers
 @CacheableTask
 public abstract class JextractGenerateTask extends JextractBaseTask {
+    /// The share of a library in bindings that were generated for a whole generation group in a single Jextract run
+    public interface GroupShare {
+        /// The source files generated for the group
+        /// @return A property to configure the group's sources directory
+        @InputDirectory
+        @PathSensitive(PathSensitivity.RELATIVE)
+        DirectoryProperty getSources();
+
+        /// The class files generated for the group
+        /// @return A property to configure the group's classes directory
+        @InputDirectory
+        @PathSensitive(PathSensitivity.RELATIVE)
+        DirectoryProperty getClasses();
+
+        /// The symbols of the group's umbrella header with their declaring headers
+        /// @return A property to configure the symbols file
+        @InputFile
+        @PathSensitive(PathSensitivity.NONE)
+        RegularFileProperty getSymbols();
+
+        /// The header files of all group members in member order
+        /// @return A property to configure the member headers
+        @InputFiles
+        @PathSensitive(PathSensitivity.RELATIVE)
+        ListProperty<@NonNull RegularFile> getMemberHeaders();
+
+        /// The position of this task's library among the group members, the first member is the primary one
+        /// @return A property to configure the member index
+        @Input
+        Property<@NonNull Integer> getMemberIndex();
+    }
+
+    /// Settings for JFR events recorded by the generated bindings
+    public interface Instrumentation {
+        /// The default duration threshold of the events, e.g., `1 ms`
+        /// @return A property to configure the threshold
+        @Input
+        Property<@NonNull String> getThreshold();
+
+        /// Only one of this many calls is measured
+        /// @return A property to configure the sampling rate
+        @Input
+        Property<@NonNull Integer> getSampling();
+    }
+
     /// Used by Gradle
     public JextractGenerateTask() { super(); }
+
+    /// If set, the task doesn't run Jextract, but copies its library's share from bindings generated for a whole group
+    /// @return A property to configure the group share
+    @Optional
+    @Nested
+    public abstract Property<@NonNull GroupShare> getGroupShare();
+
     /// All macros defined for this library, conforming to the `name=value` pattern or `name` where `value` will be 1
     /// @return A list property to add defined macros
     @Input
@@ -41,16 +115,39 @@ public abstract class JextractGenerateTask extends JextractBaseTask {
     /// All symbols to be included in the generated bindings, grouped by their category
     /// The key of each entry denotes a category, the value is a list of symbols.
     /// @return A map property to add pairs of category and symbols
+    /// @deprecated Whitelists are passed as an arg file now, configure [#getWhitelistFile()] instead, e.g., with a [JextractWhitelistTask]. This property will be removed in the next major version.
+    @Deprecated
     @Input
     public abstract MapProperty<@NonNull String, @NonNull Set<String>> getWhitelist();
 
+    /// An arg file containing the whitelisted symbols, e.g., written by [JextractWhitelistTask]
+    ///
+    /// Changes of this file are handled incrementally, see [#getManifest()].
+    /// @return a property to configure the file
+    @Optional
+    @Incremental
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getWhitelistFile();
+
     /// An optional arg file for includes filtering
     /// @return a property to configure the file
     @Optional
+    @Incremental
     @InputFile
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract RegularFileProperty getArgFile();
 
+    /// A file where the task records which files were generated for each whitelisted symbol
+    ///
+    /// If only the whitelist changed since the last run, the task deletes the files of removed symbols and generates only the added ones.
+    /// The update run includes the dependencies of the added symbols, but only files missing in the output are taken from it.
+    /// The header class is generated again if functions, constants, variables, or typedefs changed.
+    /// Any other change of the inputs causes a full run.
+    /// @return a property to configure the manifest location
+    @LocalState
+    public abstract RegularFileProperty getManifest();
+
     /// Native libraries to be loaded by generated code (either names or paths starting with colon)
     /// @return A property to add library names
     @Input
@@ -68,6 +165,42 @@ public abstract class JextractGenerateTask extends JextractBaseTask {
     @Input
     public abstract Property<@NonNull Boolean> getGenerateSourceFiles();
 
+    /// The number of concurrent Jextract runs that generate the bindings, each for a share of the symbols
+    ///
+    /// The symbols are taken from the whitelist and the arg file, or from a `--dump-includes` run if both are empty.
+    /// @return A property to configure the number of shards
+    @Optional
+    @Input
+    public abstract Property<@NonNull Integer> getShards();
+
+    /// Normalize the generated files, so identical inputs result in identical bytes on every machine, improving remote build cache hits downstream
+    /// @return a boolean property
+    @Optional
+    @Input
+    public abstract Property<@NonNull Boolean> getNormalizeOutput();
+
+    /// Functions whose downcall handles are linked with `Linker.Option.critical`, mapped to whether they may access heap memory segments
+    ///
+    /// The generated sources are rewritten after each run, which requires Jextract 22 and above.
+    /// @return A map property to add function names
+    @Optional
+    @Input
+    public abstract MapProperty<@NonNull String, @NonNull Boolean> getCriticalFunctions();
+
+    /// Functions that get asynchronous wrappers in a `<HeaderClass>Async` class, which run the calls on a bounded pool of platform threads
+    ///
+    /// The wrappers are generated from the header class after each run, which requires Jextract 22 and above.
+    /// @return A set property to add function names
+    @Optional
+    @Input
+    public abstract SetProperty<@NonNull String> getBlockingFunctions();
+
+    /// If set, the downcall and upcall handles of the generated sources are wrapped to record JFR events, which requires Jextract 22 and above
+    /// @return A property to configure the instrumentation
+    @Optional
+    @Nested
+    public abstract Property<@NonNull Instrumentation> getInstrumentation();
+
     /// The directory where to place the generated source files
     /// @return a directory property
     @OutputDirectory
@@ -78,28 +211,309 @@ public abstract class JextractGenerateTask extends JextractBaseTask {
     @OutputDirectory
     public abstract DirectoryProperty getClasses();
 
+    /// A jar file where the generated classes are packaged instead of placing them in the [classes directory][#getClasses()]
+    ///
+    /// The jar is reproducible, and a single file is much cheaper to snapshot and scan on the classpath than thousands of class files.
+    /// @return A property to configure the jar location
+    @Optional
+    @OutputFile
+    public abstract RegularFileProperty getJar();
+
+    /// An arg file where the task records all symbols of the header with their declaring headers, written by `--dump-includes`
+    /// @return A property to configure the file location
+    @Optional
+    @OutputFile
+    public abstract RegularFileProperty getSymbols();
+
     /// Task action that uses Jextract to generate Java bindings
+    /// @param inputChanges The changes since the last run, used to update the bindings if only the whitelist changed
     @TaskAction
-    protected final void generateBindings() {
-        JextractStore jextract = getJextractStore().get();
-        switch (getInstallation().get()) {
-            case RemoteJextractInstallation config -> {
-                final JavaLanguageVersion javaVersion = config.getJavaLanguageVersion().get();
-                final int version = jextract.getVersion(javaVersion);
-                jextract.exec(javaVersion, spec -> commonExec(version, spec));
+    protected final void generateBindings(InputChanges inputChanges) {
+        final boolean isTracked = getManifest().isPresent() && !getGroupShare().isPresent() && !getJar().isPresent() && getShards().getOrElse(1) <= 1;
+        if (getGroupShare().isPresent()) {
+            copyGroupShare(getGroupShare().get());
+        } else if (!isTracked || !update(inputChanges)) {
+            generate();
+        }
+        if (getJar().isPresent()) {
+            getFileSystemOperations().delete(spec -> spec.delete(getClasses().getAsFileTree()));
+            try {
+                ClassesJar.pack(getSources().get().getAsFile().toPath(), getJar().get().getAsFile().toPath());
+            } catch (IOException e) {
+                throw new GradleException("Couldn't package the generated classes", e);
+            }
+        } else {
+            getFileSystemOperations().copy(spec -> {
+                spec.from(getSources());
+                spec.into(getClasses());
+                spec.include("**/*.class");
+            });
+            getFileSystemOperations().delete(spec -> spec.delete(getSources().getAsFileTree().matching(m -> m.include("**/*.class"))));
+        }
+        if (!getCriticalFunctions().getOrElse(Map.of()).isEmpty()) linkCriticalFunctions();
+        if (!getBlockingFunctions().getOrElse(Set.of()).isEmpty()) wrapBlockingFunctions();
+        if (getInstrumentation().isPresent()) instrument(getInstrumentation().get());
+        if (getNormalizeOutput().getOrElse(false)) normalizeOutput();
+        if (!getManifest().isPresent()) return;
+        final Path manifestFile = getManifest().get().getAsFile().toPath();
+        try {
+            Files.deleteIfExists(manifestFile);
+            if (isTracked) GenerationManifest.scan(whitelistSymbols(), headerClassName(), List.of(getSources().get().getAsFile().toPath(), getClasses().get().getAsFile().toPath())).write(manifestFile);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't write the generation manifest", e);
+        }
+    }
+
+    private void linkCriticalFunctions() {
+        final Map<String, Boolean> functions = getCriticalFunctions().get();
+        if (getJextractVersion() < 22) {
+            getLogger().warn("Critical downcalls require Jextract 22 and above, the functions {} are linked as usual", functions.keySet());
+            return;
+        }
+        try {
+            final Set<String> linked = CriticalDowncalls.of(functions).apply(getSources().get().getAsFile().toPath());
+            functions.keySet().stream().filter(it -> !linked.contains(it)).forEach(it -> getLogger().warn("Couldn't find the downcall handle of the critical function {}", it));
+        } catch (IOException e) {
+            throw new GradleException("Couldn't link the critical functions", e);
+        }
+    }
+
+    private void wrapBlockingFunctions() {
+        final Set<String> functions = getBlockingFunctions().get();
+        if (getJextractVersion() < 22) {
+            getLogger().warn("Asynchronous wrappers require Jextract 22 and above, the functions {} are generated as usual", functions);
+            return;
+        }
+        getCriticalFunctions().getOrElse(Map.of()).keySet().stream().filter(functions::contains).forEach(it -> getLogger().warn("The function {} is marked as both critical and blocking, critical functions must not block", it));
+        try {
+            final Set<String> wrapped = AsyncWrappers.of(getTargetPackage().getOrElse(""), headerClassName(), functions).apply(getSources().get().getAsFile().toPath());
+            functions.stream().filter(it -> !wrapped.contains(it)).forEach(it -> getLogger().warn("Couldn't generate an asynchronous wrapper for the function {}, it is missing or variadic", it));
+        } catch (IOException e) {
+            throw new GradleException("Couldn't generate the asynchronous wrappers", e);
+        }
+    }
+
+    private void instrument(Instrumentation settings) {
+        if (getJextractVersion() < 22) {
+            getLogger().warn("JFR instrumentation requires Jextract 22 and above, the bindings are generated without it");
+            return;
+        }
+        try {
+            final var instrumentation = JfrInstrumentation.of(getTargetPackage().getOrElse(""), headerClassName(), settings.getThreshold().get(), settings.getSampling().get());
+            final int count = instrumentation.apply(getSources().get().getAsFile().toPath());
+            getLogger().info("Instrumented {} generated source files", count);
+        } catch (IllegalArgumentException e) {
+            throw new GradleException("Invalid JFR instrumentation settings", e);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't instrument the generated bindings", e);
+        }
+    }
+
+    private void normalizeOutput() {
+        final Path sources = getSources().get().getAsFile().toPath();
+        final Path classes = getClasses().get().getAsFile().toPath();
+        final List<Path> directories = new ArrayList<>(List.of(sources, classes, getHeader().get().getAsFile().toPath().toAbsolutePath().getParent()));
+        getIncludes().get().forEach(it -> directories.add(it.getAsFile().toPath()));
+        final var normalizer = OutputNormalizer.of(directories);
+        try {
+            final int count = normalizer.normalize(sources) + normalizer.normalize(classes);
+            getLogger().info("Normalized {} generated source files", count);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't normalize the generated bindings", e);
+        }
+    }
+
+    private void generate() {
+        final int version = getJextractVersion();
+        final int shards = getShards().getOrElse(1);
+        Path dumpFile = null;
+        // Sharding needs the symbol index to keep the dependencies of each shard together.
+        if (getSymbols().isPresent() || shards > 1) {
+            dumpFile = dumpIncludes(getSymbols().isPresent() ? getSymbols().get().getAsFile().toPath() : new File(getTemporaryDir(), "includes.txt").toPath());
+        }
+        if (shards <= 1 || dumpFile == null || !generateShards(version, shards, dumpFile)) {
+            final List<String> filters = new ArrayList<>();
+            if (getWhitelistFile().isPresent()) filters.add("@" + getWhitelistFile().get().getAsFile().getAbsolutePath());
+            if (getArgFile().isPresent()) filters.add("@" + getArgFile().get().getAsFile().getAbsolutePath());
+            final @Nullable Path deprecatedWhitelist = writeDeprecatedWhitelist();
+            if (deprecatedWhitelist != null) filters.add("@" + deprecatedWhitelist.toAbsolutePath());
+            runJextract(arguments(version, getSources().get().getAsFile().toPath(), getManifest().isPresent() ? headerClassName() : getHeaderClassName().getOrNull(), filters));
+        }
+    }
+
+    /// Dumps all symbols of the header with their declaring headers into an arg file
+    /// @return The arg file
+    private Path dumpIncludes(Path dumpFile) {
+        final List<String> args = new ArrayList<>();
+        getIncludes().get().forEach(it -> args.addAll(List.of("-I", it.getAsFile().getAbsolutePath())));
+        getDefinedMacros().get().forEach(it -> args.addAll(List.of("-D", it)));
+        args.addAll(List.of("--dump-includes", dumpFile.toString()));
+        args.add(getHeader().get().getAsFile().getAbsolutePath());
+        runJextract(args);
+        return dumpFile;
+    }
+
+    /// Updates the previous output for a changed whitelist
+    /// @return false if the changes require a full run
+    private boolean update(InputChanges inputChanges) {
+        if (!inputChanges.isIncremental()) return false;
+        final var previous = GenerationManifest.read(getManifest().get().getAsFile().toPath()).orElse(null);
+        final ArgFile symbols = whitelistSymbols();
+        // An empty whitelist means the whole header, which isn't tracked by symbol.
+        if (previous == null || previous.symbols().isEmpty() || symbols.entries().isEmpty()) return false;
+        final String headerClassName = headerClassName();
+        if (!previous.headerClassName().equals(headerClassName)) return false;
+
+        final Set<String> current = new TreeSet<>();
+        final List<ArgFile.Entry> added = new ArrayList<>();
+        symbols.entries().forEach(e -> {
+            if (current.add(GenerationManifest.key(e)) && !previous.symbols().contains(GenerationManifest.key(e))) added.add(e);
+        });
+        final List<String> removed = previous.symbols().stream().filter(it -> !current.contains(it)).toList();
+        final boolean isHeaderClassChanged = Stream.concat(added.stream().map(ArgFile.Entry::kind), removed.stream().map(it -> it.substring(0, it.indexOf(' '))))
+            .anyMatch(GenerationManifest::isHeaderClassKind);
+        final List<ArgFile.Entry> delta = new ArrayList<>(added.stream().filter(e -> !GenerationManifest.isHeaderClassKind(e.kind())).toList());
+        if (isHeaderClassChanged) {
+            final List<ArgFile.Entry> headerClassSymbols = symbols.entries().stream().filter(e -> GenerationManifest.isHeaderClassKind(e.kind())).distinct().toList();
+            // Without any of its symbols, Jextract would generate the whole header.
+            if (headerClassSymbols.isEmpty()) return false;
+            delta.addAll(headerClassSymbols);
+        }
+        getLogger().info("Updating bindings: {} symbols added, {} removed", added.size(), removed.size());
+
+        final List<String> obsolete = new ArrayList<>(removed);
+        if (isHeaderClassChanged) obsolete.add(GenerationManifest.HEADER_CLASS);
+        final Path sources = getSources().get().getAsFile().toPath();
+        final Path classes = getClasses().get().getAsFile().toPath();
+        try {
+            for (String key : obsolete) {
+                for (String file : previous.files().getOrDefault(key, new TreeSet<>())) {
+                    Files.deleteIfExists(sources.resolve(file));
+                    Files.deleteIfExists(classes.resolve(file));
+                }
             }
-            case LocalJextractInstallation config -> {
-                Path installationPath = config.getLocation().getAsFile().get().toPath();
-                final int version = jextract.getVersion(installationPath);
-                jextract.exec(installationPath, spec -> commonExec(version, spec));
+            if (delta.isEmpty()) return true;
+            final Path deltaDir = new File(getTemporaryDir(), "delta").toPath();
+            getFileSystemOperations().delete(spec -> spec.delete(deltaDir));
+            final Path argFile = deltaDir.resolve("delta.txt");
+            // Jextract 22 and above reject filters without the structs, unions, and typedefs the symbols depend on, even if they were generated before.
+            symbolIndex(deltaDir).closure(new ArgFile(delta)).write(argFile);
+            final Path output = deltaDir.resolve("output");
+            runJextract(arguments(getJextractVersion(), output, headerClassName, List.of("@" + argFile)));
+            // Files that are still in the output belong to kept symbols, only files that are missing are taken from the delta run.
+            getFileSystemOperations().copy(spec -> {
+                spec.from(output);
+                spec.into(sources);
+                spec.exclude(it -> !it.isDirectory() && (Files.exists(sources.resolve(it.getPath())) || Files.exists(classes.resolve(it.getPath()))));
+            });
+            return true;
+        } catch (IOException e) {
+            throw new GradleException("Couldn't update the generated bindings", e);
+        }
+    }
+
+    /// Reads the symbols of the header, reusing the [recorded symbols][#getSymbols()] of the last full run if available
+    private SymbolIndex symbolIndex(Path tempDir) throws IOException {
+        final Path recorded = getSymbols().isPresent() ? getSymbols().get().getAsFile().toPath() : null;
+        if (recorded != null && Files.isRegularFile(recorded)) return SymbolIndex.of(ArgFile.read(recorded));
+        Files.createDirectories(tempDir);
+        final Path dumpFile = dumpIncludes(tempDir.resolve("includes.txt"));
+        return SymbolIndex.of(ArgFile.read(dumpFile));
+    }
+
+    private String headerClassName() {
+        return getHeaderClassName().getOrElse(ShardPlan.headerClassName(getHeader().get().getAsFile().toPath()));
+    }
+
+    /// Generates the bindings in several concurrent Jextract runs
+    /// @return false if the symbols can't be spread over several shards because of their dependencies
+    private boolean generateShards(int version, int count, Path dumpFile) {
+        try {
+            final ArgFile whitelist = whitelistSymbols();
+            final ArgFile dump = ArgFile.read(dumpFile);
+            final ArgFile symbols = whitelist.entries().isEmpty() ? dump : whitelist;
+            final String headerClassName = headerClassName();
+            final ShardPlan plan = ShardPlan.partition(symbols, count).withDependencies(SymbolIndex.of(dump));
+            if (plan.activeShards() <= 1) {
+                getLogger().info("The symbols depend on each other too much to be generated in shards, generating them in a single run");
+                return false;
+            }
+            final Path shardsDir = new File(getTemporaryDir(), "shards").toPath();
+            getFileSystemOperations().delete(spec -> spec.delete(shardsDir));
+            final List<Integer> shards = new ArrayList<>();
+            final List<List<String>> runs = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final ArgFile shard = plan.shards().get(i);
+                // An empty filter would make Jextract generate the whole header.
+                if (shard.entries().isEmpty()) continue;
+                final Path argFile = shardsDir.resolve("shard-" + i + ".txt");
+                shard.write(argFile);
+                shards.add(i);
+                runs.add(arguments(version, shardsDir.resolve("shard-" + i), headerClassName, List.of("@" + argFile)));
             }
+            runJextractConcurrently(runs);
+            getFileSystemOperations().copy(spec -> {
+                spec.into(getSources());
+                spec.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE);
+                shards.forEach(i -> spec.from(shardsDir.resolve("shard-" + i), slice -> {
+                    if (i != 0) slice.exclude(it -> !it.isDirectory() && ShardPlan.isHeaderClassFile(it.getName(), headerClassName));
+                }));
+            });
+            return true;
+        } catch (IOException e) {
+            throw new GradleException("Couldn't prepare the shards", e);
+        }
+    }
+
+    private ArgFile whitelistSymbols() {
+        final List<ArgFile.Entry> entries = new ArrayList<>();
+        try {
+            if (getWhitelistFile().isPresent()) entries.addAll(ArgFile.read(getWhitelistFile().get().getAsFile().toPath()).entries());
+            if (getArgFile().isPresent()) entries.addAll(ArgFile.read(getArgFile().get().getAsFile().toPath()).entries());
+        } catch (IOException e) {
+            throw new GradleException("Couldn't read the whitelist", e);
+        }
+        entries.addAll(deprecatedWhitelist().entries());
+        return new ArgFile(entries.stream().map(e -> new ArgFile.Entry(e.kind(), e.name(), null)).distinct().toList());
+    }
+
+    @SuppressWarnings("deprecation")
+    private ArgFile deprecatedWhitelist() {
+        return ArgFile.of(getWhitelist().getOrElse(Map.of()));
+    }
+
+    private @Nullable Path writeDeprecatedWhitelist() {
+        final ArgFile whitelist = deprecatedWhitelist();
+        if (whitelist.entries().isEmpty()) return null;
+        final Path file = new File(getTemporaryDir(), "whitelist.txt").toPath();
+        try {
+            whitelist.write(file);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't write the whitelist", e);
         }
+        return file;
+    }
+
+    private void copyGroupShare(GroupShare share) {
+        final BindingsSplit split;
+        try {
+            split = BindingsSplit.of(ArgFile.read(share.getSymbols().get().getAsFile().toPath()), share.getMemberHeaders().get().stream().map(it -> it.getAsFile().toPath()).toList());
+        } catch (IOException e) {
+            throw new GradleException("Couldn't read the symbols of the generation group", e);
+        }
+        final int member = share.getMemberIndex().get();
+        getFileSystemOperations().copy(spec -> {
+            spec.from(share.getSources());
+            spec.into(getSources());
+            spec.include(it -> it.isDirectory() || split.ownerOf(it.getName()) == member);
+            spec.setIncludeEmptyDirs(false);
+        });
         getFileSystemOperations().copy(spec -> {
-            spec.from(getSources());
-            spec.into(getClasses());
-            spec.include("**/*.class");
+            spec.from(share.getClasses());
+            spec.into(getSources());
+            spec.include(it -> it.isDirectory() || split.ownerOf(it.getName()) == member);
+            spec.setIncludeEmptyDirs(false);
         });
-        getFileSystemOperations().delete(spec -> spec.delete(getSources().getAsFileTree().matching(m -> m.include("**/*.class"))));
     }
 
     /// Inject the build service for file system operations.
@@ -107,19 +521,20 @@ public abstract class JextractGenerateTask extends JextractBaseTask {
     @Inject
     protected abstract FileSystemOperations getFileSystemOperations();
 
-    private void commonExec(int version, ExecSpec spec) {
-        getIncludes().get().forEach(it -> spec.args("-I", it));
-        spec.args("--output", getSources().get());
-        if (getTargetPackage().isPresent()) spec.args("-t", getTargetPackage().get());
-        if (getHeaderClassName().isPresent()) spec.args("--header-class-name", getHeaderClassName().get());
-        getDefinedMacros().get().forEach(it -> spec.args("-D", it));
-        getWhitelist().get().forEach((k, v) -> v.forEach(it -> spec.args("--include-" + k, it)));
+    private List<String> arguments(int version, Path output, @Nullable String headerClassName, List<String> filters) {
+        final List<String> args = new ArrayList<>();
+        getIncludes().get().forEach(it -> args.addAll(List.of("-I", it.getAsFile().getAbsolutePath())));
+        args.addAll(List.of("--output", output.toAbsolutePath().toString()));
+        if (getTargetPackage().isPresent()) args.addAll(List.of("-t", getTargetPackage().get()));
+        if (headerClassName != null) args.addAll(List.of("--header-class-name", headerClassName));
+        getDefinedMacros().get().forEach(it -> args.addAll(List.of("-D", it)));
+        args.addAll(filters);
         if (getUseSystemLoadLibrary().getOrElse(false) && version >= 22) {
-            spec.args("--use-system-load-library");
-            getLibraries().get().forEach(it -> spec.args("-l", it));
+            args.add("--use-system-load-library");
+            getLibraries().get().forEach(it -> args.addAll(List.of("-l", it)));
         }
-        if (getGenerateSourceFiles().getOrElse(false) && version <= 21) spec.args("--source");
-        if (getArgFile().isPresent()) spec.args("@" + getArgFile().get());
-        spec.args(getHeader().get());
+        if (getGenerateSourceFiles().getOrElse(false) && version <= 21) args.add("--source");
+        args.add(getHeader().get().getAsFile().getAbsolutePath());
+        return args;
     }
 }
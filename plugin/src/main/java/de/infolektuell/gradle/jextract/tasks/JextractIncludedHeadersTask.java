@@ -0,0 +1,56 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.HeaderClosure;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.*;
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/// Records the headers from the include search path that are reachable from a library header by include directives
+///
+/// Jextract tasks take the recorded file as an input, so they only fingerprint these headers instead of the whole include directories.
+@UntrackedTask(because = "Scanning the include directives is cheaper than fingerprinting the whole include directories")
+public abstract class JextractIncludedHeadersTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractIncludedHeadersTask() { super(); }
+
+    /// The library header file to start from
+    /// @return A property to configure the header file
+    @InputFile
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getHeader();
+
+    /// All directories of the include search path in order
+    /// @return A property to configure the include search path
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ListProperty<@NonNull Directory> getIncludes();
+
+    /// The file where the reachable headers are recorded relative to their include directory
+    /// @return A property to configure the file location
+    @OutputFile
+    public abstract RegularFileProperty getIncludedHeaders();
+
+    /// The task action that scans the header and records the reachable headers
+    ///
+    /// If an include directive can't be resolved statically, the file states that, so the whole include directories are fingerprinted.
+    @TaskAction
+    protected final void record() {
+        final Path file = getIncludedHeaders().get().getAsFile().toPath();
+        final List<Path> includes = getIncludes().get().stream().map(it -> it.getAsFile().toPath().toAbsolutePath().normalize()).toList();
+        try {
+            final var headers = HeaderClosure.scan(getHeader().get().getAsFile().toPath(), includes);
+            if (headers.isPresent()) new HeaderClosure(includes, headers.get()).write(file);
+            else HeaderClosure.writeUnresolved(file);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't record the included headers", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.*;
+import org.gradle.work.DisableCachingByDefault;
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/// Writes a header file that includes the header files of several libraries, so Jextract can process them in a single run
+@DisableCachingByDefault(because = "Writing a few include directives is faster than caching")
+public abstract class JextractUmbrellaHeaderTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractUmbrellaHeaderTask() { super(); }
+
+    /// The header files to be included, in include order
+    /// @return A property to add header files
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract ListProperty<@NonNull RegularFile> getHeaders();
+
+    /// The header file to be written
+    /// @return A property to configure the file location
+    @OutputFile
+    public abstract RegularFileProperty getUmbrellaHeader();
+
+    /// The task action that writes the umbrella header
+    @TaskAction
+    protected final void write() {
+        final Path target = getUmbrellaHeader().get().getAsFile().toPath();
+        final List<String> lines = getHeaders().get().stream()
+            .map(it -> String.format("#include \"%s\"", it.getAsFile().getAbsolutePath().replace('\\', '/')))
+            .toList();
+        try {
+            Files.createDirectories(target.getParent());
+            Files.write(target, lines);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't write the umbrella header " + target, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import de.infolektuell.gradle.jextract.model.SymbolIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Checks the whitelist of a library against the symbol index written by [JextractDumpIncludesTask]
+///
+/// Misspelled symbols or symbols with a wrong kind fail this task within milliseconds, instead of a whole Jextract run.
+@CacheableTask
+public abstract class JextractValidateWhitelistTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractValidateWhitelistTask() { super(); }
+
+    /// The symbol index of the library header
+    /// @return A property to configure the index file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSymbolIndex();
+
+    /// An arg file containing the whitelisted symbols, e.g., written by [JextractWhitelistTask]
+    /// @return A property to configure the whitelist file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getWhitelistFile();
+
+    /// An additional arg file with whitelisted symbols
+    /// @return A property to configure the arg file
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getArgFile();
+
+    /// A report file listing the number of validated symbols
+    /// @return A property to configure the report location
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    /// The task action that validates the whitelist
+    @TaskAction
+    protected final void validate() {
+        try {
+            final SymbolIndex index = SymbolIndex.read(getSymbolIndex().get().getAsFile().toPath());
+            final ArgFile whitelist = whitelist(getWhitelistFile(), getArgFile());
+            final List<ArgFile.Entry> unknown = index.unknown(whitelist);
+            if (!unknown.isEmpty()) throw new GradleException(describe(index, unknown));
+            final var report = getReport().get().getAsFile().toPath();
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            Files.writeString(report, whitelist.entries().size() + " whitelisted symbols found in " + index.symbols().size() + " symbols of the header\n");
+        } catch (IOException e) {
+            throw new GradleException("Couldn't validate the whitelist", e);
+        }
+    }
+
+    /// Reads the whitelisted symbols of a whitelist file and an optional arg file
+    /// @param whitelistFile The whitelist file
+    /// @param argFile The optional arg file
+    /// @return The combined entries
+    /// @throws IOException if a file can't be read
+    static ArgFile whitelist(RegularFileProperty whitelistFile, RegularFileProperty argFile) throws IOException {
+        final List<ArgFile.Entry> entries = new ArrayList<>(ArgFile.read(whitelistFile.get().getAsFile().toPath()).entries());
+        if (argFile.isPresent()) entries.addAll(ArgFile.read(argFile.get().getAsFile().toPath()).entries());
+        return new ArgFile(entries.stream().distinct().toList());
+    }
+
+    /// Describes symbols that are missing in the index, suggesting the right kind if a symbol was found with another one
+    /// @param index The symbol index
+    /// @param unknown The unknown whitelist entries
+    /// @return The error message
+    static String describe(SymbolIndex index, List<ArgFile.Entry> unknown) {
+        final StringBuilder message = new StringBuilder("The header doesn't declare " + unknown.size() + " whitelisted symbols:");
+        unknown.forEach(e -> {
+            message.append("\n  ").append(e.kind()).append(' ').append(e.name());
+            final List<String> kinds = index.findByName(e.name()).stream().map(SymbolIndex.Symbol::kind).toList();
+            if (!kinds.isEmpty()) message.append(" (declared as ").append(String.join(", ", kinds)).append(')');
+        });
+        return message.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import de.infolektuell.gradle.jextract.model.NativeExports;
+import de.infolektuell.gradle.jextract.model.SymbolIndex;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.*;
+import org.jspecify.annotations.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/// Checks that the native binaries of a library export all whitelisted functions and variables
+///
+/// The export tables of ELF, Mach-O, and PE binaries are read directly, so a missing symbol fails the build instead of the first downcall at runtime.
+/// The binaries of a format belong to the same platform, e.g., a library and its dependencies, so a symbol is only missing if none of them exports it.
+/// If a symbol index is configured, the task also writes a whitelist of all header functions and variables the binaries export.
+@CacheableTask
+public abstract class JextractVerifyExportsTask extends DefaultTask {
+    private static final Set<String> EXPORTED_KINDS = Set.of("function", "var");
+
+    /// Used by Gradle
+    public JextractVerifyExportsTask() { super(); }
+
+    /// Native library binaries or directories containing them
+    /// @return A file collection to add binaries
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getBinaries();
+
+    /// The names of the libraries to check, e.g., `foo` for `libfoo.so`, `libfoo.dylib`, and `foo.dll`, all binaries are checked if empty
+    /// @return A property to configure the library names
+    @Input
+    public abstract ListProperty<@NonNull String> getLibraries();
+
+    /// An arg file containing the whitelisted symbols, e.g., written by [JextractWhitelistTask]
+    /// @return A property to configure the whitelist file
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getWhitelistFile();
+
+    /// The symbol index of the library header, used to write the whitelist of exported symbols
+    /// @return A property to configure the index file
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSymbolIndex();
+
+    /// A report file listing the checked binaries
+    /// @return A property to configure the report location
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    /// An arg file with the header functions and variables exported on all platforms, together with the types they need
+    /// @return A property to configure the file location
+    @Optional
+    @OutputFile
+    public abstract RegularFileProperty getExportedArgFile();
+
+    /// The task action that verifies the exports
+    @TaskAction
+    protected final void verify() {
+        try {
+            final Map<Path, NativeExports> binaries = new TreeMap<>();
+            for (Path binary : binaries()) NativeExports.read(binary).ifPresent(it -> binaries.put(binary, it));
+            if (binaries.isEmpty()) getLogger().warn("No native binaries found to verify the exported symbols");
+            final List<ArgFile.Entry> whitelist = ArgFile.read(getWhitelistFile().get().getAsFile().toPath()).entries().stream()
+                .filter(e -> EXPORTED_KINDS.contains(e.kind()))
+                .toList();
+            final Map<String, SortedSet<String>> exportsByFormat = NativeExports.union(binaries.values());
+            final Map<String, List<String>> binariesByFormat = new TreeMap<>();
+            binaries.forEach((binary, exports) -> binariesByFormat.computeIfAbsent(exports.format(), k -> new ArrayList<>()).add(binary.getFileName().toString()));
+            final StringBuilder missing = new StringBuilder();
+            exportsByFormat.forEach((format, exports) -> {
+                final List<String> names = whitelist.stream().map(ArgFile.Entry::name).filter(it -> !exports.contains(it)).distinct().toList();
+                if (!names.isEmpty()) missing.append("\n  ").append(format).append(" ").append(binariesByFormat.get(format)).append(": ").append(String.join(", ", names));
+            });
+            if (!missing.isEmpty()) throw new GradleException("Whitelisted symbols aren't exported by the native libraries:" + missing);
+            if (getSymbolIndex().isPresent() && getExportedArgFile().isPresent()) {
+                final SymbolIndex index = SymbolIndex.read(getSymbolIndex().get().getAsFile().toPath());
+                final ArgFile exported = new ArgFile(index.symbols().stream()
+                    .filter(it -> EXPORTED_KINDS.contains(it.kind()))
+                    .filter(it -> exportsByFormat.values().stream().allMatch(exports -> exports.contains(it.name())))
+                    .map(SymbolIndex.Symbol::toEntry)
+                    .toList());
+                index.closure(exported).write(getExportedArgFile().get().getAsFile().toPath());
+            }
+            final Path report = getReport().get().getAsFile().toPath();
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            final List<String> lines = new ArrayList<>();
+            binaries.forEach((binary, exports) -> lines.add(binary.getFileName() + " (" + exports.format() + "): " + exports.symbols().size() + " exported symbols"));
+            Files.write(report, lines);
+        } catch (IOException e) {
+            throw new GradleException("Couldn't verify the exported symbols", e);
+        }
+    }
+
+    private List<Path> binaries() throws IOException {
+        final List<String> names = getLibraries().get();
+        final List<Path> result = new ArrayList<>();
+        for (File file : getBinaries().getFiles()) {
+            final Path path = file.toPath();
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> s = Files.walk(path)) {
+                    s.filter(Files::isRegularFile).filter(it -> NativeExports.isBinaryOf(it.getFileName().toString(), names)).forEach(result::add);
+                }
+            } else if (Files.isRegularFile(path) && NativeExports.isBinaryOf(path.getFileName().toString(), names)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import de.infolektuell.gradle.jextract.model.ArgFile;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.tasks.*;
+import org.gradle.work.DisableCachingByDefault;
+import org.jspecify.annotations.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/// Writes the whitelist of a library into an arg file
+///
+/// As a file, the whitelist becomes an incremental input of the generate task, which can then update its output for added and removed symbols.
+@DisableCachingByDefault(because = "Writing a small arg file is faster than caching")
+public abstract class JextractWhitelistTask extends DefaultTask {
+    /// Used by Gradle
+    public JextractWhitelistTask() { super(); }
+
+    /// All symbols to be included in the generated bindings, grouped by their category
+    /// The key of each entry denotes a category, the value is a list of symbols.
+    /// @return A map property to add pairs of category and symbols
+    @Input
+    public abstract MapProperty<@NonNull String, @NonNull Set<String>> getWhitelist();
+
+    /// Arg files whose include options are merged into the whitelist, e.g., the arg files of the libraries in a generation group
+    /// @return A file collection to add arg files
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getArgFiles();
+
+    /// The arg file to be written, the symbols are sorted by category and name
+    /// @return A property to configure the file location
+    @OutputFile
+    public abstract RegularFileProperty getArgFile();
+
+    /// The task action that writes the arg file
+    @TaskAction
+    protected final void write() {
+        try {
+            final ArgFile whitelist = ArgFile.of(getWhitelist().get());
+            if (getArgFiles().isEmpty()) {
+                whitelist.write(getArgFile().get().getAsFile().toPath());
+                return;
+            }
+            final Map<String, ArgFile.Entry> entries = new LinkedHashMap<>();
+            whitelist.entries().forEach(e -> entries.putIfAbsent(e.kind() + " " + e.name(), e));
+            for (File file : getArgFiles().getFiles()) {
+                ArgFile.read(file.toPath()).entries().forEach(e -> entries.putIfAbsent(e.kind() + " " + e.name(), e));
+            }
+            new ArgFile(List.copyOf(entries.values())).write(getArgFile().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new GradleException("Couldn't write the whitelist", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jspecify.annotations.NonNull;
+
+import java.util.spi.ToolProvider;
+
+/// Runs Jextract as a tool within a worker process that is started with the Java launcher of a Jextract installation
+///
+/// Gradle keeps worker processes alive between tasks and builds, so later invocations skip JVM startup and class loading.
+public abstract class JextractWorkAction implements WorkAction<JextractWorkAction.@NonNull Parameters> {
+    /// The parameters of a single Jextract invocation
+    public interface Parameters extends WorkParameters {
+        /// The command line arguments passed to Jextract
+        /// @return A list property to add the arguments
+        ListProperty<@NonNull String> getArguments();
+    }
+
+    /// Used by Gradle
+    public JextractWorkAction() { super(); }
+
+    @Override
+    public void execute() {
+        final ToolProvider jextract = ToolProvider.findFirst("jextract")
+            .orElseThrow(() -> new GradleException("The worker's runtime doesn't provide the Jextract tool."));
+        final int exitCode = jextract.run(System.out, System.err, getParameters().getArguments().get().toArray(String[]::new));
+        if (exitCode != 0) throw new GradleException(String.format("Jextract failed with exit code %d.", exitCode));
+    }
+}
@@ -9,17 +9,25 @@ import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
 import org.gradle.jvm.toolchain.JavaInstallationMetadata;
-import org.gradle.process.ExecOperations;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 import org.jspecify.annotations.NonNull;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /// Creates a new JMOD archive.
 @CacheableTask
 public abstract class JmodCreateTask extends DefaultTask {
+    private static final Map<File, File> javaExecutables = new ConcurrentHashMap<>();
 
     /// Used by Gradle
     public JmodCreateTask() { super(); }
@@ -95,9 +103,10 @@ public abstract class JmodCreateTask extends DefaultTask {
     public abstract RegularFileProperty getJmod();
 
     /// Task action that creates the JMOD archive
+    ///
+    /// The `jmod` tool runs in a worker, within the daemon if the daemon runs on the toolchain itself, or else in a worker process started by the toolchain.
     @TaskAction
     protected void create() {
-        final var executable = getMetadata().get().getInstallationPath().getAsFileTree().matching(m -> m.include("**/bin/jmod", "**/bin/jmod.exe")).getSingleFile();
         final var archive = getJmod().get().getAsFile().toPath();
         try {
             Files.deleteIfExists(archive);
@@ -105,34 +114,67 @@ public abstract class JmodCreateTask extends DefaultTask {
             throw new GradleException("Couldn't delete jmod file " + archive);
         }
 
-        getExecOperations().exec(spec -> {
-            spec.executable(executable);
-            spec.args("create");
-            final FileCollection classpath = getClasspath().filter(File::exists);
-            if (!classpath.isEmpty()) spec.args("--class-path", classpath.getAsPath());
-            if (getCompress().isPresent()) spec.args("--compress", String.format("zip-%d", getCompress().get()));
-            final var excludes = String.join(",", getExcludes().get());
-            if (!excludes.isEmpty()) spec.args("--exclude", excludes);
-            final FileCollection headers = getHeaderFiles().filter(File::exists);
-            if (!headers.isEmpty()) spec.args("--header-files", headers.getAsPath());
-            final FileCollection legal = getLegalNotices().filter(File::exists);
-            if (!legal.isEmpty()) spec.args("--legal-notices", legal.getAsPath());
-            final FileCollection libs = getLibs().filter(File::exists);
-            if (!libs.isEmpty()) spec.args("--libs", libs.getAsPath());
-            if (getMainClass().isPresent()) spec.args("--main-class", getMainClass().get());
-            if (!getManPages().isEmpty()) spec.args("--man-pages", getManPages().getAsPath());
-            if (getModuleVersion().isPresent()) {
-                final var pattern = Pattern.compile("^[0-9]+(\\.[0-9]+){0,2}$");
-                final var matcher = pattern.matcher(getModuleVersion().get());
-                if (matcher.matches()) spec.args("--module-version", getModuleVersion().get());
-            }
-            if (getTargetPlatform().isPresent()) spec.args("--target-platform", getTargetPlatform().get());
-            spec.args(getJmod().get());
+        final JavaInstallationMetadata metadata = getMetadata().get();
+        final WorkQueue queue = isDaemonRuntime(metadata)
+            ? getWorkerExecutor().noIsolation()
+            : getWorkerExecutor().processIsolation(spec -> spec.forkOptions(options -> options.setExecutable(javaExecutable(metadata))));
+        queue.submit(JmodWorkAction.class, parameters -> parameters.getArguments().set(arguments()));
+        queue.await();
+    }
+
+    private List<String> arguments() {
+        final List<String> args = new ArrayList<>();
+        args.add("create");
+        final FileCollection classpath = getClasspath().filter(File::exists);
+        if (!classpath.isEmpty()) args.addAll(List.of("--class-path", classpath.getAsPath()));
+        if (getCompress().isPresent()) args.addAll(List.of("--compress", String.format("zip-%d", getCompress().get())));
+        final var excludes = String.join(",", getExcludes().get());
+        if (!excludes.isEmpty()) args.addAll(List.of("--exclude", excludes));
+        final FileCollection headers = getHeaderFiles().filter(File::exists);
+        if (!headers.isEmpty()) args.addAll(List.of("--header-files", headers.getAsPath()));
+        final FileCollection legal = getLegalNotices().filter(File::exists);
+        if (!legal.isEmpty()) args.addAll(List.of("--legal-notices", legal.getAsPath()));
+        final FileCollection libs = getLibs().filter(File::exists);
+        if (!libs.isEmpty()) args.addAll(List.of("--libs", libs.getAsPath()));
+        if (getMainClass().isPresent()) args.addAll(List.of("--main-class", getMainClass().get()));
+        if (!getManPages().isEmpty()) args.addAll(List.of("--man-pages", getManPages().getAsPath()));
+        if (getModuleVersion().isPresent()) {
+            final var pattern = Pattern.compile("^[0-9]+(\\.[0-9]+){0,2}$");
+            final var matcher = pattern.matcher(getModuleVersion().get());
+            if (matcher.matches()) args.addAll(List.of("--module-version", getModuleVersion().get()));
+        }
+        if (getTargetPlatform().isPresent()) args.addAll(List.of("--target-platform", getTargetPlatform().get()));
+        args.add(getJmod().get().getAsFile().getAbsolutePath());
+        return args;
+    }
+
+    /// Checks if the daemon runs on the given toolchain, so its runtime provides the toolchain's `jmod` tool
+    ///
+    /// Sharing the Java version isn't enough, a runtime of another vendor or without the `jdk.jlink` module can have the same version.
+    private static boolean isDaemonRuntime(JavaInstallationMetadata metadata) {
+        final Path javaHome = Path.of(System.getProperty("java.home"));
+        final Path installation = metadata.getInstallationPath().getAsFile().toPath();
+        try {
+            return Files.isSameFile(javaHome, installation);
+        } catch (IOException ignored) {
+            return false;
+        }
+    }
+
+    /// Finds the Java launcher of a toolchain, the lookup is cached per installation
+    private static File javaExecutable(JavaInstallationMetadata metadata) {
+        final File root = metadata.getInstallationPath().getAsFile();
+        return javaExecutables.computeIfAbsent(root, r -> {
+            final File java = new File(r, "bin/java");
+            final File javaExe = new File(r, "bin/java.exe");
+            if (java.isFile()) return java;
+            if (javaExe.isFile()) return javaExe;
+            throw new GradleException("Couldn't find the Java launcher in the toolchain " + r);
         });
     }
 
-    ///  Inject the build service for exec operations
-    /// @return the injected build service
+    ///  Inject the worker executor service
+    /// @return the injected service
     @Inject
-    protected abstract ExecOperations getExecOperations();
+    protected abstract WorkerExecutor getWorkerExecutor();
 }
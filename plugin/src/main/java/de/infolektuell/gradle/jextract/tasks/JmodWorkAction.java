@@ -0,0 +1,32 @@
+package de.infolektuell.gradle.jextract.tasks;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jspecify.annotations.NonNull;
+
+import java.util.spi.ToolProvider;
+
+/// Runs the `jmod` tool of the worker's JDK through its [ToolProvider]
+///
+/// Unlike forking `bin/jmod`, the tool runs in the daemon or in a reusable worker process, so no JVM has to be started per archive.
+public abstract class JmodWorkAction implements WorkAction<JmodWorkAction.@NonNull Parameters> {
+    /// The parameters of a single jmod invocation
+    public interface Parameters extends WorkParameters {
+        /// The command line arguments passed to jmod
+        /// @return A list property to add the arguments
+        ListProperty<@NonNull String> getArguments();
+    }
+
+    /// Used by Gradle
+    public JmodWorkAction() { super(); }
+
+    @Override
+    public void execute() {
+        final ToolProvider jmod = ToolProvider.findFirst("jmod")
+            .orElseThrow(() -> new GradleException("The worker's runtime doesn't provide the jmod tool."));
+        final int exitCode = jmod.run(System.out, System.err, getParameters().getArguments().get().toArray(String[]::new));
+        if (exitCode != 0) throw new GradleException(String.format("jmod failed with exit code %d.", exitCode));
+    }
+}
@@ -1,11 +1,25 @@
 package de.infolektuell.gradle.jextract;
 
+import de.infolektuell.gradle.jextract.extensions.GenerationGroupHandler;
 import de.infolektuell.gradle.jextract.extensions.JextractExtension;
+import de.infolektuell.gradle.jextract.extensions.LibraryHandler;
+import de.infolektuell.gradle.jextract.extensions.SourceSetExtension;
+import de.infolektuell.gradle.jextract.model.Platform;
+import de.infolektuell.gradle.jextract.tasks.JextractWhitelistTask;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.nativeplatform.OperatingSystemFamily;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class GradleJextractPluginTest {
     @Test
@@ -14,4 +28,62 @@ class GradleJextractPluginTest {
         project.getPlugins().apply(GradleJextractPlugin.PLUGIN_NAME);
         assertNotNull(project.getExtensions().findByType(JextractExtension.class));
     }
+
+    @Test
+    void publishesPlatformVariantsIndependentOfCurrentPlatform() {
+        Project project = ProjectBuilder.builder().build();
+        project.getPlugins().apply(GradleJextractPlugin.PLUGIN_NAME);
+        LibraryHandler lib = project.getExtensions().getByType(JextractExtension.class).getLibraries().create("bass");
+        Configuration runtimeClasspath = project.getConfigurations().getByName(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME);
+        assertNull(runtimeClasspath.getAttributes().getAttribute(OperatingSystemFamily.OPERATING_SYSTEM_ATTRIBUTE));
+        assertTrue(project.getConfigurations().getByName(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME).getAllDependencies().isEmpty());
+        lib.getPlatforms().create(Platform.getCurrentPlatform().isLinux() ? "windows-x64" : "linux-x64");
+        assertNotNull(runtimeClasspath.getAttributes().getAttribute(OperatingSystemFamily.OPERATING_SYSTEM_ATTRIBUTE));
+        assertFalse(project.getConfigurations().getByName(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME).getAllDependencies().isEmpty());
+    }
+
+    @Test
+    void leavesGroupUnfilteredIfAMemberHasNoWhitelist() {
+        Project project = ProjectBuilder.builder().build();
+        project.getPlugins().apply(GradleJextractPlugin.PLUGIN_NAME);
+        JextractExtension extension = project.getExtensions().getByType(JextractExtension.class);
+        extension.getLibraries().create("bass").getWhitelist().getFunctions().add("BASS_Init");
+        extension.getLibraries().create("opus");
+        GenerationGroupHandler group = extension.getGroups().create("audio");
+        group.getLibraries().set(List.of("bass", "opus"));
+        JextractWhitelistTask task = project.getTasks().named(group.getWriteWhitelistTaskName(), JextractWhitelistTask.class).get();
+        assertTrue(task.getWhitelist().get().isEmpty());
+        group.getLibraries().set(List.of("bass"));
+        assertEquals(Set.of("BASS_Init"), task.getWhitelist().get().get("function"));
+    }
+
+    @Test
+    void compilesPrunedBindingsApartFromSourceSet() {
+        Project project = ProjectBuilder.builder().build();
+        project.getPlugins().apply(GradleJextractPlugin.PLUGIN_NAME);
+        LibraryHandler lib = project.getExtensions().getByType(JextractExtension.class).getLibraries().create("bass");
+        SourceSet main = project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        main.getExtensions().getByType(SourceSetExtension.class).getLibraries().add(lib);
+        var sources = project.getLayout().getBuildDirectory().dir("generated/sources/jextract/java/bass").get().getAsFile();
+        Task compileTask = project.getTasks().getByName(lib.getCompileBindingsTaskName());
+        Task compileUsedTask = project.getTasks().getByName(lib.getCompileUsedBindingsTaskName());
+        assertTrue(main.getJava().getSrcDirs().contains(sources));
+        assertFalse(main.getCompileClasspath().getBuildDependencies().getDependencies(null).contains(compileTask));
+        lib.getPruneUnusedBindings().set(true);
+        assertFalse(main.getJava().getSrcDirs().contains(sources));
+        assertTrue(main.getCompileClasspath().getBuildDependencies().getDependencies(null).contains(compileTask));
+        assertTrue(main.getRuntimeClasspath().getBuildDependencies().getDependencies(null).contains(compileUsedTask));
+    }
+
+    @Test
+    void generatesFromRecordedHeadersIfTracked() {
+        Project project = ProjectBuilder.builder().build();
+        project.getPlugins().apply(GradleJextractPlugin.PLUGIN_NAME);
+        LibraryHandler lib = project.getExtensions().getByType(JextractExtension.class).getLibraries().create("bass");
+        Task recordTask = project.getTasks().getByName(lib.getRecordIncludedHeadersTaskName());
+        Task generateTask = project.getTasks().getByName(lib.getGenerateBindingsTaskName());
+        assertFalse(generateTask.getTaskDependencies().getDependencies(generateTask).contains(recordTask));
+        lib.getTrackIncludedHeaders().set(true);
+        assertTrue(generateTask.getTaskDependencies().getDependencies(generateTask).contains(recordTask));
+    }
 }
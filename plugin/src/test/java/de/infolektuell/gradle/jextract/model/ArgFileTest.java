@@ -0,0 +1,42 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ArgFileTest {
+    private static final String DUMP = """
+        #### Extracted from: /opt/bass/include/bass.h
+
+        --include-function    BASS_GetVersion    # header: /opt/bass/include/bass.h
+        --include-struct      BASS_INFO          # header: /opt/bass/include/bass.h
+        --include-typedef     DWORD              # header: /opt/bass/include/types.h
+        """;
+
+    @Test
+    void shouldParseDumpedIncludes() {
+        var argFile = ArgFile.parse(DUMP);
+        assertEquals(3, argFile.entries().size());
+        assertEquals(new ArgFile.Entry("function", "BASS_GetVersion", "/opt/bass/include/bass.h"), argFile.entries().getFirst());
+        assertEquals(Set.of(Path.of("/opt/bass/include/bass.h").toAbsolutePath(), Path.of("/opt/bass/include/types.h").toAbsolutePath()), argFile.headers());
+    }
+
+    @Test
+    void shouldParseEntriesWithoutHeader() {
+        var argFile = ArgFile.parse("--include-function foo\n-DFOO=1\n");
+        assertEquals(1, argFile.entries().size());
+        assertNull(argFile.entries().getFirst().header());
+    }
+
+    @Test
+    void shouldCreateSortedArgFileFromWhitelist() {
+        var argFile = ArgFile.of(Map.of("struct", Set.of("b", "a"), "function", List.of("f")));
+        assertEquals(List.of("--include-function f", "--include-struct a", "--include-struct b"), argFile.entries().stream().map(ArgFile.Entry::toLine).toList());
+    }
+}
@@ -0,0 +1,66 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncWrappersTest {
+    private static final String HEADER = """
+        package com.example;
+
+        public class bass_h extends bass_h_1 {
+            public static int BASS_Init(int device, String win) {
+                return device + win.length();
+            }
+
+            public static void BASS_Free() {}
+
+            public static class BASS_Printf {
+                public static BASS_Printf makeInvoker(Object... layouts) { return null; }
+            }
+        }
+        """;
+
+    @Test
+    void shouldWrapBlockingFunctions(@TempDir Path dir) throws Exception {
+        Path src = Files.createDirectories(dir.resolve("src/com/example"));
+        Files.writeString(src.resolve("bass_h.java"), HEADER);
+        Files.writeString(src.resolve("bass_h_1.java"), "package com.example; class bass_h_1 { public static String BASS_ErrorGetName(int code) { return \"E\" + code; } }");
+        var wrappers = AsyncWrappers.of("com.example", "bass_h", List.of("BASS_Init", "BASS_Free", "BASS_ErrorGetName", "BASS_Printf"));
+        assertEquals(Set.of("BASS_Init", "BASS_Free", "BASS_ErrorGetName"), wrappers.apply(dir.resolve("src")));
+
+        Path classes = dir.resolve("classes");
+        try (var files = Files.list(src)) {
+            var args = Stream.concat(Stream.of("-d", classes.toString()), files.map(Path::toString)).toArray(String[]::new);
+            assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, args));
+        }
+        try (var loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            var async = loader.loadClass("com.example.bass_hAsync");
+            var init = (CompletableFuture<?>) async.getMethod("BASS_Init", int.class, String.class).invoke(null, 1, "win");
+            assertEquals(4, init.get());
+            var name = (CompletableFuture<?>) async.getMethod("BASS_ErrorGetName", int.class).invoke(null, 5);
+            assertEquals("E5", name.get());
+        }
+    }
+
+    @Test
+    void shouldAllocateStructResultsInPerCallArena() {
+        var wrappers = AsyncWrappers.of("", "bass_h", List.of("BASS_GetInfo"));
+        var signatures = wrappers.signatures("public static MemorySegment BASS_GetInfo(SegmentAllocator allocator, int handle) {");
+        assertTrue(signatures.getFirst().isAllocating());
+        String source = wrappers.source(signatures);
+        assertTrue(source.contains("public static CompletableFuture<MemorySegment> BASS_GetInfo(int handle) {"));
+        assertTrue(source.contains("bass_h.BASS_GetInfo(Arena.ofAuto(), handle)"));
+    }
+}
@@ -0,0 +1,39 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BindingsSplitTest {
+    private static final String SYMBOLS = """
+        --include-function foo_init    # header: /src/foo/include/foo.h
+        --include-struct foo_config    # header: /src/foo/include/foo.h
+        --include-struct bar_state    # header: /src/bar/bar.h
+        --include-typedef bar_callback    # header: /src/bar/bar_types.h
+        --include-struct timespec    # header: /usr/include/time.h
+        """;
+
+    private final BindingsSplit split = BindingsSplit.of(ArgFile.parse(SYMBOLS), List.of(Path.of("/src/foo/include/foo.h"), Path.of("/src/bar/bar.h")));
+
+    @Test
+    void shouldAssignTypesToDeclaringMember() {
+        assertEquals(0, split.ownerOf("foo_config.java"));
+        assertEquals(1, split.ownerOf("bar_state.java"));
+        assertEquals(1, split.ownerOf("bar_state$Inner.class"));
+    }
+
+    @Test
+    void shouldAssignHeadersWithinMemberDirectory() {
+        assertEquals(1, split.ownerOf("bar_callback.class"));
+    }
+
+    @Test
+    void shouldAssignEverythingElseToPrimaryMember() {
+        assertEquals(0, split.ownerOf("sdk_h.java"));
+        assertEquals(0, split.ownerOf("sdk_h$shared.class"));
+        assertEquals(0, split.ownerOf("timespec.java"));
+    }
+}
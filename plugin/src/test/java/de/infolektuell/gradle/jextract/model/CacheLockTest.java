@@ -0,0 +1,34 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheLockTest {
+    @Test
+    void shouldWaitUntilLockIsReleased(@TempDir Path dir) throws Exception {
+        Path lockFile = dir.resolve("locks/jextract.lock");
+        AtomicBoolean released = new AtomicBoolean(false);
+        CompletableFuture<Boolean> waiting;
+        try (var ignored = CacheLock.acquire(lockFile)) {
+            waiting = CompletableFuture.supplyAsync(() -> {
+                try (var lock = CacheLock.acquire(lockFile)) {
+                    return released.get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Thread.sleep(300);
+            assertFalse(waiting.isDone());
+            released.set(true);
+        }
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+}
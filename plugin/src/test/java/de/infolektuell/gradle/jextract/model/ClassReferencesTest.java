@@ -0,0 +1,42 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassReferencesTest {
+    private static Path write(Path dir, String path, String content) throws Exception {
+        final Path file = dir.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    @Test
+    void shouldFindUsedSymbols(@TempDir Path dir) throws Exception {
+        Path bindings = write(dir, "src/com/example/foo_h.java", "package com.example; public class foo_h { public static int foo_init(foo_config c) { return 0; } public static void foo_exit() {} public static int FOO_MAX() { return 1; } }");
+        Path struct = write(dir, "src/com/example/foo_config.java", "package com.example; public class foo_config { public static long sizeof() { return 8; } }");
+        Path consumer = write(dir, "src/app/Main.java", "package app; import com.example.*; public class Main { void run(foo_config c) { foo_h.foo_init(c); System.out.println(foo_h.FOO_MAX()); } }");
+        Path classes = dir.resolve("classes");
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.toString(), bindings.toString(), struct.toString(), consumer.toString()));
+
+        var references = ClassReferences.scan(List.of(classes.resolve("app"), dir.resolve("missing")));
+        assertTrue(references.classes().contains("com/example/foo_config"));
+        assertTrue(references.members().contains(new ClassReferences.Member("com/example/foo_h", "foo_init")));
+
+        var index = new SymbolIndex(List.of(
+            new SymbolIndex.Symbol("function", "foo_init", null, List.of("struct foo_config")),
+            new SymbolIndex.Symbol("function", "foo_exit", null, List.of()),
+            new SymbolIndex.Symbol("constant", "FOO_MAX", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_config", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_unused", null, List.of())
+        ));
+        var used = references.usedSymbols(index, "com.example", "foo_h");
+        assertEquals(List.of("function foo_init", "constant FOO_MAX", "struct foo_config"), used.entries().stream().map(e -> SymbolIndex.key(e.kind(), e.name())).toList());
+    }
+}
@@ -0,0 +1,45 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassesJarTest {
+    private static void writeClasses(Path root) throws Exception {
+        Files.createDirectories(root.resolve("com/example"));
+        Files.writeString(root.resolve("com/example/foo_h.class"), "foo");
+        Files.writeString(root.resolve("com/example/Bar.class"), "bar");
+        Files.writeString(root.resolve("com/example/Bar.java"), "source");
+    }
+
+    @Test
+    void shouldMoveClassesIntoSortedJar(@TempDir Path dir) throws Exception {
+        Path root = dir.resolve("sources");
+        writeClasses(root);
+        Path jar = dir.resolve("foo.jar");
+        assertEquals(2, ClassesJar.pack(root, jar));
+        assertFalse(Files.exists(root.resolve("com/example/foo_h.class")));
+        assertTrue(Files.exists(root.resolve("com/example/Bar.java")));
+        try (var file = new JarFile(jar.toFile())) {
+            List<String> names = file.stream().map(ZipEntry::getName).toList();
+            assertEquals(List.of("META-INF/", "META-INF/MANIFEST.MF", "com/", "com/example/", "com/example/Bar.class", "com/example/foo_h.class"), names);
+        }
+    }
+
+    @Test
+    void shouldBeReproducible(@TempDir Path dir) throws Exception {
+        writeClasses(dir.resolve("a"));
+        ClassesJar.pack(dir.resolve("a"), dir.resolve("a.jar"));
+        Thread.sleep(10);
+        writeClasses(dir.resolve("b"));
+        ClassesJar.pack(dir.resolve("b"), dir.resolve("b.jar"));
+        assertArrayEquals(Files.readAllBytes(dir.resolve("a.jar")), Files.readAllBytes(dir.resolve("b.jar")));
+    }
+}
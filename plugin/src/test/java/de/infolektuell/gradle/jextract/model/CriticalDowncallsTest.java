@@ -0,0 +1,38 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CriticalDowncallsTest {
+    private static final String SOURCE = """
+        public class Bass {
+            private static class BASS_GetVersion {
+                public static final FunctionDescriptor DESC = FunctionDescriptor.of(Bass.C_INT);
+                public static final MemorySegment ADDR = Bass.findOrThrow("BASS_GetVersion");
+                public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+            }
+
+            private static class BASS_Init {
+                public static final FunctionDescriptor DESC = FunctionDescriptor.of(Bass.C_INT, Bass.C_INT);
+                public static final MemorySegment ADDR = Bass.findOrThrow("BASS_Init");
+                public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+            }
+        }
+        """;
+
+    @Test
+    void shouldLinkSelectedFunctionsCritical() {
+        var critical = CriticalDowncalls.of(Map.of("BASS_GetVersion", true, "BASS_Missing", false));
+        Set<String> linked = new TreeSet<>();
+        String rewritten = critical.rewrite(SOURCE, linked);
+        assertEquals(Set.of("BASS_GetVersion"), linked);
+        assertTrue(rewritten.contains("downcallHandle(ADDR, DESC, Linker.Option.critical(true));"));
+        assertEquals(1, rewritten.split("Option.critical", -1).length - 1);
+        assertEquals(rewritten, critical.rewrite(rewritten, new TreeSet<>()));
+    }
+}
@@ -0,0 +1,60 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryIndexTest {
+    @Test
+    void shouldPreferShallowMatches(@TempDir Path dir) throws Exception {
+        var index = new DirectoryIndex();
+        Path nested = Files.writeString(Files.createDirectories(dir.resolve("include/sub")).resolve("foo.h"), "");
+        assertEquals(Optional.of(nested), index.findFirst(dir, List.of("**/foo.h")));
+        Path shallow = Files.writeString(dir.resolve("include/foo.h"), "");
+        Files.setLastModifiedTime(dir.resolve("include"), FileTime.fromMillis(Files.getLastModifiedTime(dir.resolve("include")).toMillis() + 1000));
+        assertEquals(Optional.of(shallow), index.findFirst(dir, List.of("**/foo.h")));
+        assertEquals(Optional.of(shallow), new DirectoryIndex().findFirst(dir, List.of("include/*.h")));
+        assertEquals(Optional.empty(), new DirectoryIndex().findFirst(dir, List.of("*.h")));
+    }
+
+    @Test
+    void shouldMatchAntPatterns() {
+        assertTrue(DirectoryIndex.compile("**/foo.h").matcher("foo.h").matches());
+        assertTrue(DirectoryIndex.compile("**/foo.h").matcher("a/b/foo.h").matches());
+        assertTrue(DirectoryIndex.compile("include/?oo.h").matcher("include/boo.h").matches());
+        assertFalse(DirectoryIndex.compile("*.h").matcher("include/foo.h").matches());
+    }
+
+    @Test
+    void shouldDetectModuleDescriptors(@TempDir Path dir) throws Exception {
+        assertFalse(new DirectoryIndex().containsModuleDescriptor(dir));
+        Files.writeString(Files.createDirectories(dir.resolve("com.example")).resolve("module-info.java"), "");
+        assertTrue(new DirectoryIndex().containsModuleDescriptor(dir));
+    }
+
+    @Test
+    void shouldNotDescendDeeperThanPatterns(@TempDir Path dir) throws Exception {
+        assertEquals(2, DirectoryIndex.maxDepth(List.of("module-info.java", "*/module-info.java")));
+        assertEquals(Integer.MAX_VALUE, DirectoryIndex.maxDepth(List.of("include/*.h", "**/foo.h")));
+        Files.writeString(Files.createDirectories(dir.resolve("com/example")).resolve("module-info.java"), "");
+        assertFalse(new DirectoryIndex().containsModuleDescriptor(dir));
+        assertTrue(new DirectoryIndex().findFirst(dir, List.of("**/module-info.java")).isPresent());
+    }
+
+    @Test
+    void shouldFollowSymbolicLinksOnce(@TempDir Path dir) throws Exception {
+        Path headers = Files.createDirectories(dir.resolve("Bass.framework/Versions/A/Headers"));
+        Files.writeString(headers.resolve("bass.h"), "");
+        Files.createSymbolicLink(dir.resolve("Bass.framework/Headers"), headers);
+        Files.createSymbolicLink(headers.resolve("loop"), dir);
+        assertEquals(Optional.of(dir.resolve("Bass.framework/Headers/bass.h")), new DirectoryIndex().findFirst(dir, List.of("*/Headers/bass.h")));
+        assertTrue(new DirectoryIndex().findFirst(dir, List.of("**/missing.h")).isEmpty());
+    }
+}
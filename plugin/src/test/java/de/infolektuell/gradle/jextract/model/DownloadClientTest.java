@@ -0,0 +1,109 @@
+package de.infolektuell.gradle.jextract.model;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadClientTest {
+    // SHA-256 of "jextract"
+    private static final String CHECKSUM = "1b699044a7efb99c3d11b05d3f702234856b11f0e1362d9a9fe8a484b166bec8";
+
+    private static DownloadClient.Resource resource(String checksum) {
+        return new DownloadClient.Resource(URI.create("https://example.com/jextract.tar.gz"), checksum, "SHA-256");
+    }
+
+    @Test
+    void shouldCalculateChecksum(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("jextract.tar.gz"), "jextract");
+        assertEquals(CHECKSUM, DownloadClient.checksum(file, "SHA-256"));
+    }
+
+    @Test
+    void shouldStampVerifiedFile(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("jextract.tar.gz"), "jextract");
+        var client = new DownloadClient();
+        assertTrue(client.verify(resource(CHECKSUM), file));
+        var stamp = VerificationStamp.read(VerificationStamp.locate(file));
+        assertTrue(stamp.isPresent());
+        assertTrue(stamp.get().matches(file, resource(CHECKSUM)));
+        assertFalse(stamp.get().matches(file, resource("0".repeat(64))));
+    }
+
+    @Test
+    void shouldNotStampMismatchingFile(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("jextract.tar.gz"), "something else");
+        var client = new DownloadClient();
+        assertFalse(client.verify(resource(CHECKSUM), file));
+        assertTrue(VerificationStamp.read(VerificationStamp.locate(file)).isEmpty());
+    }
+
+    @Test
+    void shouldRehashChangedFile(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(dir.resolve("jextract.tar.gz"), "jextract");
+        var client = new DownloadClient();
+        assertTrue(client.verify(resource(CHECKSUM), file));
+        Files.writeString(file, "jextract, but modified");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertFalse(client.verify(resource(CHECKSUM), file));
+    }
+
+    @Test
+    void shouldFallBackToNextMirror(@TempDir Path dir) throws Exception {
+        Path mirror = Files.writeString(dir.resolve("mirror.tar.gz"), "jextract");
+        Path target = dir.resolve("downloads/jextract.tar.gz");
+        var resource = new DownloadClient.Resource(URI.create("https://example.invalid/jextract.tar.gz"), CHECKSUM, "SHA-256", List.of(dir.resolve("missing.tar.gz").toUri(), mirror.toUri()));
+        try (var client = new DownloadClient()) {
+            client.download(resource, target);
+        }
+        assertEquals("jextract", Files.readString(target));
+        assertTrue(VerificationStamp.read(VerificationStamp.locate(target)).isPresent());
+    }
+
+    @Test
+    void shouldResumePartialDownload(@TempDir Path dir) throws Exception {
+        byte[] content = "jextract".getBytes(StandardCharsets.UTF_8);
+        AtomicReference<String> range = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jextract.tar.gz", exchange -> {
+            range.set(exchange.getRequestHeaders().getFirst("Range"));
+            exchange.sendResponseHeaders(206, content.length - 3);
+            try (var body = exchange.getResponseBody()) {
+                body.write(content, 3, content.length - 3);
+            }
+        });
+        server.start();
+        try (var client = new DownloadClient()) {
+            Path target = dir.resolve("jextract.tar.gz");
+            Files.write(dir.resolve("jextract.tar.gz.part"), new byte[]{content[0], content[1], content[2]});
+            URI url = URI.create(String.format("http://127.0.0.1:%d/jextract.tar.gz", server.getAddress().getPort()));
+            client.download(new DownloadClient.Resource(url, CHECKSUM, "SHA-256"), target);
+            assertEquals("bytes=3-", range.get());
+            assertEquals("jextract", Files.readString(target));
+            assertFalse(Files.exists(dir.resolve("jextract.tar.gz.part")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptDownload(@TempDir Path dir) throws Exception {
+        Path mirror = Files.writeString(dir.resolve("mirror.tar.gz"), "corrupt");
+        Path target = dir.resolve("jextract.tar.gz");
+        var resource = new DownloadClient.Resource(mirror.toUri(), CHECKSUM, "SHA-256");
+        try (var client = new DownloadClient()) {
+            assertThrows(RuntimeException.class, () -> client.download(resource, target));
+        }
+        assertFalse(Files.exists(target));
+    }
+}
@@ -0,0 +1,42 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationManifestTest {
+    @Test
+    void shouldAttributeFilesToSymbols(@TempDir Path dir) throws Exception {
+        Path sources = Files.createDirectories(dir.resolve("sources/com/example"));
+        Path classes = Files.createDirectories(dir.resolve("classes/com/example"));
+        Files.writeString(sources.resolve("foo_h.java"), "");
+        Files.writeString(sources.resolve("foo_h$shared.java"), "");
+        Files.writeString(sources.resolve("foo_config.java"), "");
+        Files.writeString(classes.resolve("foo_config$Inner.class"), "");
+        var symbols = ArgFile.of(Map.of("function", Set.of("foo_init"), "struct", Set.of("foo_config")));
+
+        var manifest = GenerationManifest.scan(symbols, "foo_h", List.of(dir.resolve("sources"), dir.resolve("classes")));
+        assertEquals(Set.of("function foo_init", "struct foo_config"), manifest.symbols());
+        assertEquals(Set.of(), manifest.files().get("function foo_init"));
+        assertEquals(Set.of("com/example/foo_config.java", "com/example/foo_config$Inner.class"), manifest.files().get("struct foo_config"));
+        assertEquals(Set.of("com/example/foo_h.java", "com/example/foo_h$shared.java"), manifest.files().get(GenerationManifest.HEADER_CLASS));
+
+        manifest.write(dir.resolve("manifest.properties"));
+        assertEquals(manifest, GenerationManifest.read(dir.resolve("manifest.properties")).orElseThrow());
+    }
+
+    @Test
+    void shouldDistinguishHeaderClassKinds() {
+        assertTrue(GenerationManifest.isHeaderClassKind("function"));
+        assertTrue(GenerationManifest.isHeaderClassKind("typedef"));
+        assertFalse(GenerationManifest.isHeaderClassKind("struct"));
+        assertFalse(GenerationManifest.isHeaderClassKind("union"));
+    }
+}
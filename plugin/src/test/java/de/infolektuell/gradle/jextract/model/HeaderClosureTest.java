@@ -0,0 +1,47 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderClosureTest {
+    @Test
+    void shouldRoundTripRelativeToIncludes(@TempDir Path dir) throws Exception {
+        Path include = dir.resolve("include");
+        Path sdk = dir.resolve("sdk");
+        var headers = new TreeSet<>(List.of(include.resolve("bass.h"), include.resolve("sys/types.h"), sdk.resolve("stdio.h"), dir.resolve("other/x.h")));
+        var closure = new HeaderClosure(List.of(include, sdk), headers);
+        Path file = dir.resolve("headers.txt");
+        closure.write(file);
+        assertEquals(List.of("0:bass.h", "0:sys/types.h", "1:stdio.h"), Files.readAllLines(file));
+        assertEquals(List.of(List.of("bass.h", "sys/types.h"), List.of("stdio.h")), HeaderClosure.readPatterns(file, 2).orElseThrow());
+        assertTrue(HeaderClosure.readPatterns(file, 1).isEmpty());
+
+        HeaderClosure.writeUnresolved(file);
+        assertTrue(HeaderClosure.readPatterns(file, 2).isEmpty());
+        assertTrue(HeaderClosure.readPatterns(dir.resolve("missing.txt"), 2).isEmpty());
+    }
+
+    @Test
+    void shouldScanHeadersReachableByIncludes(@TempDir Path dir) throws Exception {
+        Path include = Files.createDirectories(dir.resolve("include"));
+        Path src = Files.createDirectories(dir.resolve("src"));
+        Path header = Files.writeString(src.resolve("bass.h"), "#include \"config.h\"\n#ifdef BASS_EXT\n#  include <sub/fwd.h>\n#endif\n#include <stdio.h>\n");
+        Files.writeString(include.resolve("config.h"), "#define BASS_EXT 1\n");
+        Files.createDirectories(include.resolve("sub"));
+        Files.writeString(include.resolve("sub/fwd.h"), "#include \"impl.h\"\n");
+        Files.writeString(include.resolve("sub/impl.h"), "int BASS_Init(void);\n");
+        Files.writeString(include.resolve("unrelated.h"), "");
+        var headers = HeaderClosure.scan(header, List.of(include)).orElseThrow();
+        assertEquals(List.of(include.resolve("config.h"), include.resolve("sub/fwd.h"), include.resolve("sub/impl.h"), header), List.copyOf(headers));
+
+        Files.writeString(include.resolve("sub/impl.h"), "#include PLATFORM_HEADER\n");
+        assertTrue(HeaderClosure.scan(header, List.of(include)).isEmpty());
+    }
+}
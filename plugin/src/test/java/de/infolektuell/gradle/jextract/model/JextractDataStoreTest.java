@@ -0,0 +1,38 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JextractDataStoreTest {
+    @Test
+    void shouldPreferMirrorsOverUrl() {
+        var platform = Platform.getCurrentPlatform();
+        String base = String.format("jextract.25.%s.%s", platform.operatingSystem().name().toLowerCase(), platform.architecture().name().toLowerCase());
+        var data = new Properties();
+        data.setProperty(base + ".url", "https://download.java.net/jextract/openjdk-25-jextract.tar.gz");
+        data.setProperty(base + ".sha-256", "abc");
+        data.setProperty(base + ".mirrors", "https://mirror.example.com/openjdk-25-jextract.tar.gz");
+        data.setProperty("jextract.mirrors", "file:///opt/jextract, https://nexus.example.com/repository/jextract/");
+        var resource = new JextractDataStore(data).resource(25);
+        assertEquals(List.of(
+            URI.create("https://mirror.example.com/openjdk-25-jextract.tar.gz"),
+            URI.create("file:///opt/jextract/openjdk-25-jextract.tar.gz"),
+            URI.create("https://nexus.example.com/repository/jextract/openjdk-25-jextract.tar.gz"),
+            URI.create("https://download.java.net/jextract/openjdk-25-jextract.tar.gz")
+        ), resource.locations());
+    }
+
+    @Test
+    void shouldRejectMirrorsWithoutScheme() {
+        var data = new Properties();
+        data.setProperty("jextract.mirrors", "https://nexus.example.com/jextract/, mirror.example.com/jextract");
+        var e = assertThrows(IllegalArgumentException.class, () -> new JextractDataStore(data));
+        assertTrue(e.getMessage().contains("mirror.example.com/jextract"));
+        assertTrue(e.getMessage().contains("jextract.mirrors"));
+    }
+}
@@ -0,0 +1,89 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntBinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrInstrumentationTest {
+    private static final String SOURCE = """
+        package com.example;
+
+        public class bass_h {
+            private static class BASS_Init {
+                public static final FunctionDescriptor DESC = FunctionDescriptor.of(bass_h.C_INT, bass_h.C_INT);
+                public static final MemorySegment ADDR = bass_h.findOrThrow("BASS_Init");
+                public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+            }
+        }
+        """;
+
+    private static final String CALLBACK = """
+        package com.example;
+
+        public class SYNCPROC {
+            public interface Function {
+                void apply(int handle);
+            }
+
+            public static MemorySegment allocate(SYNCPROC.Function fi, Arena arena) {
+                return Linker.nativeLinker().upcallStub(UP$MH.bindTo(fi), $DESC, arena);
+            }
+        }
+        """;
+
+    @Test
+    void shouldWrapDowncallsAndUpcalls() {
+        var instrumentation = JfrInstrumentation.of("com.example", "bass_h", "1 ms", 10);
+        String downcalls = instrumentation.rewrite(SOURCE, "bass_h");
+        assertTrue(downcalls.contains("HANDLE = bass_hInstrumentation.downcall(\"BASS_Init\", Linker.nativeLinker().downcallHandle(ADDR, DESC));"));
+        assertEquals(downcalls, instrumentation.rewrite(downcalls, "bass_h"));
+        String upcalls = instrumentation.rewrite(CALLBACK, "SYNCPROC");
+        assertTrue(upcalls.contains(".upcallStub(bass_hInstrumentation.upcall(\"SYNCPROC\", UP$MH.bindTo(fi)), $DESC, arena);"));
+        assertEquals(upcalls, instrumentation.rewrite(upcalls, "SYNCPROC"));
+        assertThrows(IllegalArgumentException.class, () -> JfrInstrumentation.of("", "bass_h", "fast", 1));
+    }
+
+    @Test
+    void shouldKeepWrappedHandlesCallable(@TempDir Path dir) throws Exception {
+        var instrumentation = JfrInstrumentation.of("com.example", "bass_h", "0 ms", 1);
+        Path src = Files.createDirectories(dir.resolve("src/com/example"));
+        Path helper = Files.writeString(src.resolve("bass_hInstrumentation.java"), instrumentation.helperSource());
+        Path probe = Files.writeString(src.resolve("Probe.java"), """
+            package com.example;
+
+            import java.lang.invoke.*;
+
+            public class Probe implements java.util.function.IntBinaryOperator {
+                private static final MethodHandle MAX;
+                static {
+                    try {
+                        MAX = bass_hInstrumentation.downcall("max", MethodHandles.lookup().findStatic(Math.class, "max", MethodType.methodType(int.class, int.class, int.class)));
+                    } catch (ReflectiveOperationException e) {
+                        throw new ExceptionInInitializerError(e);
+                    }
+                }
+
+                public int applyAsInt(int a, int b) {
+                    try {
+                        return (int) MAX.invokeExact(a, b);
+                    } catch (Throwable e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+            """);
+        Path classes = dir.resolve("classes");
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.toString(), helper.toString(), probe.toString()));
+        try (var loader = new URLClassLoader(new java.net.URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            var max = (IntBinaryOperator) loader.loadClass("com.example.Probe").getConstructor().newInstance();
+            assertEquals(7, max.applyAsInt(3, 7));
+        }
+    }
+}
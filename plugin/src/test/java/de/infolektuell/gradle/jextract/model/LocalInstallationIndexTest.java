@@ -0,0 +1,53 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalInstallationIndexTest {
+    private static Path install(Path root) throws Exception {
+        Path executable = Files.writeString(Files.createDirectories(root.resolve("bin")).resolve("jextract"), "#!/bin/sh\n");
+        executable.toFile().setExecutable(true);
+        Files.writeString(Files.createDirectories(root.resolve("lib")).resolve("modules"), "modules");
+        return executable;
+    }
+
+    @Test
+    void shouldStoreAndReuseEntry(@TempDir Path dir) throws Exception {
+        Path root = dir.resolve("jextract-22");
+        Path executable = install(root);
+        var index = new LocalInstallationIndex(dir.resolve("index"));
+        assertTrue(index.lookup(root).isEmpty());
+        var entry = index.get(root, "jextract");
+        assertEquals(executable, entry.executable());
+        assertEquals(entry, index.lookup(root).orElseThrow());
+    }
+
+    @Test
+    void shouldInvalidateEntryWhenModulesChange(@TempDir Path dir) throws Exception {
+        Path root = dir.resolve("jextract-22");
+        install(root);
+        var index = new LocalInstallationIndex(dir.resolve("index"));
+        var entry = index.get(root, "jextract");
+        Path modules = Files.writeString(root.resolve("lib/modules"), "other modules");
+        Files.setLastModifiedTime(modules, FileTime.fromMillis(Files.getLastModifiedTime(modules).toMillis() + 2000));
+        assertTrue(index.lookup(root).isEmpty());
+        assertNotEquals(entry.fingerprint(), index.get(root, "jextract").fingerprint());
+    }
+
+    @Test
+    void shouldPersistProbedVersion(@TempDir Path dir) throws Exception {
+        Path root = dir.resolve("jextract-22");
+        install(root);
+        var index = new LocalInstallationIndex(dir.resolve("index"));
+        var entry = index.get(root, "jextract");
+        assertEquals(0, entry.version());
+        index.store(root, entry.withVersion(22));
+        assertEquals(22, new LocalInstallationIndex(dir.resolve("index")).get(root, "jextract").version());
+    }
+}
@@ -0,0 +1,53 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeBundleTest {
+    @Test
+    void shouldExtractIntoContentAddressedCache(@TempDir Path dir) throws Exception {
+        Path binary = Files.writeString(dir.resolve("libfoo.so"), "not really a library");
+        String platform = Platform.getCurrentPlatform().getId();
+        var bundle = NativeBundle.of("foo", platform, List.of(binary));
+        String hash = NativeBundle.hash(binary);
+        assertEquals(64, hash.length());
+        assertEquals(hash + "/libfoo.so\n", bundle.manifest(platform));
+        assertEquals("", bundle.manifest("windows-aarch64"));
+
+        Path resources = dir.resolve("resources");
+        bundle.write(Map.of("libfoo.so", binary), resources);
+        assertTrue(Files.isRegularFile(resources.resolve("META-INF/jextract/foo/" + platform + "/libfoo.so")));
+        assertTrue(Files.isRegularFile(resources.resolve("META-INF/jextract/foo/" + platform + "/" + NativeBundle.MANIFEST)));
+        Path src = Files.createDirectories(dir.resolve("src/com/example"));
+        Path loader = Files.writeString(src.resolve("FooNatives.java"), bundle.loaderSource("com.example", "FooNatives"));
+        Path classes = dir.resolve("classes");
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.toString(), loader.toString()));
+
+        Path cache = dir.resolve("cache");
+        String previous = System.setProperty("jextract.natives.cache", cache.toString());
+        try (var classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL(), resources.toUri().toURL()}, null)) {
+            var load = classLoader.loadClass("com.example.FooNatives").getMethod("load");
+            // The fake binary is extracted, but can't be loaded.
+            var error = assertThrows(InvocationTargetException.class, () -> load.invoke(null));
+            assertTrue(error.getCause() instanceof UnsatisfiedLinkError);
+            assertEquals("not really a library", Files.readString(cache.resolve(hash).resolve("libfoo.so")));
+            try (var files = Files.list(cache.resolve(hash))) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            if (previous == null) System.clearProperty("jextract.natives.cache");
+            else System.setProperty("jextract.natives.cache", previous);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeExportsTest {
+    private static final Path LIBS = Path.of("../examples/lib/src/main/lib");
+
+    @Test
+    void shouldReadExportTables() throws Exception {
+        var elf = NativeExports.read(LIBS.resolve("linux/x64/libbass.so")).orElseThrow();
+        var machO = NativeExports.read(LIBS.resolve("macos/x64/libbass.dylib")).orElseThrow();
+        var pe = NativeExports.read(LIBS.resolve("windows/x64/bass.dll")).orElseThrow();
+        assertEquals("ELF", elf.format());
+        assertEquals("Mach-O", machO.format());
+        assertEquals("PE", pe.format());
+        for (var exports : new NativeExports[]{elf, machO, pe}) {
+            assertTrue(exports.symbols().contains("BASS_GetVersion"));
+            assertFalse(exports.symbols().contains("BASS_DoesNotExist"));
+        }
+    }
+
+    @Test
+    void shouldJoinExportsOfSameFormat() {
+        var library = new NativeExports("ELF", new TreeSet<>(Set.of("foo_init")));
+        var extension = new NativeExports("ELF", new TreeSet<>(Set.of("foo_ext_init")));
+        var windows = new NativeExports("PE", new TreeSet<>(Set.of("foo_init")));
+        var union = NativeExports.union(List.of(library, extension, windows));
+        assertEquals(Set.of("foo_init", "foo_ext_init"), union.get("ELF"));
+        assertEquals(Set.of("foo_init"), union.get("PE"));
+    }
+
+    @Test
+    void shouldIgnoreUnknownFormats() {
+        assertTrue(NativeExports.parse(ByteBuffer.wrap(new byte[64])).isEmpty());
+        assertTrue(NativeExports.isBinary("libfoo.so.1"));
+        assertTrue(NativeExports.isBinary("foo.dll"));
+        assertFalse(NativeExports.isBinary("foo.h"));
+        assertTrue(NativeExports.isBinaryOf("libbass.dylib", List.of("bass")));
+        assertTrue(NativeExports.isBinaryOf("bass.dll", List.of(":/opt/bass.dll")));
+        assertFalse(NativeExports.isBinaryOf("libbassmix.so", List.of("bass")));
+    }
+}
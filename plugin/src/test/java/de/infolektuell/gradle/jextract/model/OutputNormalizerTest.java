@@ -0,0 +1,29 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputNormalizerTest {
+    @Test
+    void shouldStripDirectoriesFromComments() {
+        var normalizer = OutputNormalizer.of(List.of(Path.of("/home/ci/sdk"), Path.of("/home/ci/sdk/include")));
+        String source = "// declared in /home/ci/sdk/include/foo.h  \r\n * see /home/ci/sdk/docs/foo.md\r\nString path = \"/home/ci/sdk/lib\";\r\n";
+        assertEquals("// declared in foo.h\n * see docs/foo.md\nString path = \"/home/ci/sdk/lib\";\n", normalizer.normalizeSource(source));
+    }
+
+    @Test
+    void shouldSetConstantModificationTime(@TempDir Path dir) throws Exception {
+        Path file = Files.writeString(Files.createDirectories(dir.resolve("com/example")).resolve("foo_h.java"), "class foo_h {}\r\n");
+        var normalizer = OutputNormalizer.of(List.of());
+        assertEquals(1, normalizer.normalize(dir));
+        assertEquals("class foo_h {}\n", Files.readString(file));
+        assertEquals(OutputNormalizer.FILE_TIME, Files.getLastModifiedTime(file));
+        assertEquals(0, normalizer.normalize(dir));
+    }
+}
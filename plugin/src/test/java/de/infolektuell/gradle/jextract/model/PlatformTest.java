@@ -43,4 +43,14 @@ class PlatformTest {
             assertFalse(platform.isWindows());
         });
     }
+
+    @Test
+    void shouldParseIds() {
+        var platform = new Platform(Platform.OperatingSystem.MAC, Platform.Architecture.AARCH64);
+        assertEquals("mac-aarch64", platform.getId());
+        assertEquals(platform, Platform.of("mac-aarch64"));
+        assertEquals(Platform.getCurrentPlatform(), Platform.of(Platform.getCurrentPlatform().getId()));
+        assertThrows(IllegalArgumentException.class, () -> Platform.of("solaris-sparc"));
+        assertThrows(IllegalArgumentException.class, () -> Platform.of("linux"));
+    }
 }
@@ -0,0 +1,93 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardPlanTest {
+    @Test
+    void shouldKeepHeaderClassSymbolsInFirstShard() {
+        var symbols = ArgFile.of(Map.of(
+            "function", Set.of("foo_init", "foo_free"),
+            "constant", Set.of("FOO_VERSION"),
+            "typedef", Set.of("foo_size_t"),
+            "struct", Set.of("foo_a", "foo_b", "foo_c", "foo_d", "foo_e")
+        ));
+        var plan = ShardPlan.partition(symbols, 3);
+        assertEquals(3, plan.shards().size());
+        var first = plan.shards().getFirst().symbols();
+        assertEquals(Set.of("foo_init", "foo_free"), first.get("function"));
+        assertEquals(Set.of("FOO_VERSION"), first.get("constant"));
+        assertEquals(Set.of("foo_size_t"), first.get("typedef"));
+        long structs = plan.shards().stream().mapToLong(s -> s.symbols().getOrDefault("struct", new TreeSet<>()).size()).sum();
+        assertEquals(5, structs);
+    }
+
+    @Test
+    void shouldPartitionStably() {
+        var symbols = ArgFile.of(Map.of("struct", Set.of("foo_a", "foo_b", "foo_c")));
+        var more = ArgFile.of(Map.of("struct", Set.of("foo_a", "foo_b", "foo_c", "foo_d")));
+        List<ArgFile> shards = ShardPlan.partition(symbols, 4).shards();
+        List<ArgFile> moreShards = ShardPlan.partition(more, 4).shards();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(moreShards.get(i).entries().containsAll(shards.get(i).entries()));
+        }
+    }
+
+    @Test
+    void shouldMoveSharedDependenciesToFirstShard() {
+        var index = new SymbolIndex(List.of(
+            new SymbolIndex.Symbol("function", "foo_init", null, List.of("struct foo_a")),
+            new SymbolIndex.Symbol("struct", "foo_a", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_b", null, List.of("struct foo_c")),
+            new SymbolIndex.Symbol("struct", "foo_c", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_d", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_e", null, List.of())
+        ));
+        var symbols = ArgFile.of(Map.of("function", Set.of("foo_init"), "struct", Set.of("foo_a", "foo_b", "foo_c", "foo_d", "foo_e")));
+        var plan = ShardPlan.partition(symbols, 3).withDependencies(index);
+        var first = plan.shards().getFirst().entries();
+        assertTrue(first.contains(new ArgFile.Entry("struct", "foo_a", null)));
+        // foo_b and foo_c hash into different shards, so the dependency crosses shards.
+        assertTrue(first.contains(new ArgFile.Entry("struct", "foo_c", null)));
+        for (ArgFile shard : plan.shards()) {
+            // Each shard includes everything it depends on, and a struct generated by several shards is owned by the first.
+            assertEquals(shard.entries().size(), index.closure(shard).entries().size());
+            shard.entries().stream()
+                .filter(e -> plan.shards().stream().filter(other -> other.entries().contains(e)).count() > 1)
+                .forEach(e -> assertTrue(first.contains(e)));
+        }
+        long structs = plan.shards().stream().flatMap(s -> s.entries().stream()).filter(e -> e.kind().equals("struct")).distinct().count();
+        assertEquals(5, structs);
+    }
+
+    @Test
+    void shouldCollapseShardsDependingOnEachOther() {
+        var index = new SymbolIndex(List.of(
+            new SymbolIndex.Symbol("function", "foo_init", null, List.of("struct foo_a", "struct foo_b", "struct foo_c")),
+            new SymbolIndex.Symbol("struct", "foo_a", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_b", null, List.of()),
+            new SymbolIndex.Symbol("struct", "foo_c", null, List.of())
+        ));
+        var symbols = ArgFile.of(Map.of("function", Set.of("foo_init"), "struct", Set.of("foo_a", "foo_b", "foo_c")));
+        var plan = ShardPlan.partition(symbols, 4).withDependencies(index);
+        assertEquals(1, plan.activeShards());
+        assertEquals(4, plan.shards().getFirst().entries().size());
+    }
+
+    @Test
+    void shouldRecognizeHeaderClassFiles() {
+        assertEquals("foo_h", ShardPlan.headerClassName(Path.of("include/foo.h")));
+        assertEquals("_2d_h", ShardPlan.headerClassName(Path.of("2d.h")));
+        assertTrue(ShardPlan.isHeaderClassFile("foo_h.java", "foo_h"));
+        assertTrue(ShardPlan.isHeaderClassFile("foo_h_1.class", "foo_h"));
+        assertTrue(ShardPlan.isHeaderClassFile("foo_h$shared.class", "foo_h"));
+        assertFalse(ShardPlan.isHeaderClassFile("foo_hint.java", "foo_h"));
+    }
+}
@@ -0,0 +1,72 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolIndexTest {
+    private static final String HEADER = """
+        #include <stdint.h>
+        #define FOO_MAX \\
+            16
+        /* struct ignored { int x; }; */
+        typedef struct foo_point { int32_t x, y; } foo_point_t;
+        typedef void (*foo_callback)(foo_point_t *point);
+        struct foo_config {
+            struct foo_point origin;
+            foo_callback callback;
+        };
+        int foo_init(struct foo_config *config);
+        static inline int foo_max(void) { return FOO_MAX; }
+        extern const char *foo_name;
+        """;
+
+    private static SymbolIndex index(Path dir) throws Exception {
+        Path header = Files.writeString(dir.resolve("foo.h"), HEADER);
+        return SymbolIndex.of(ArgFile.parse("""
+            --include-function foo_init    # header: %1$s
+            --include-function foo_max    # header: %1$s
+            --include-struct foo_config    # header: %1$s
+            --include-struct foo_point    # header: %1$s
+            --include-typedef foo_callback    # header: %1$s
+            --include-typedef foo_point_t    # header: %1$s
+            --include-var foo_name    # header: %1$s
+            """.formatted(header)));
+    }
+
+    @Test
+    void shouldFindDependencies(@TempDir Path dir) throws Exception {
+        var index = index(dir);
+        assertEquals(List.of("struct foo_config"), index.find("function", "foo_init").orElseThrow().dependencies());
+        assertEquals(List.of("struct foo_point", "typedef foo_callback"), index.find("struct", "foo_config").orElseThrow().dependencies());
+        assertEquals(List.of("typedef foo_point_t"), index.find("typedef", "foo_callback").orElseThrow().dependencies());
+        assertEquals(List.of("struct foo_point"), index.find("typedef", "foo_point_t").orElseThrow().dependencies());
+        assertEquals(List.of(), index.find("function", "foo_max").orElseThrow().dependencies());
+        assertTrue(index.find("var", "foo_name").isPresent());
+    }
+
+    @Test
+    void shouldExpandAndValidateWhitelists(@TempDir Path dir) throws Exception {
+        var index = index(dir);
+        var whitelist = ArgFile.of(Map.of("function", Set.of("foo_init", "foo_exit"), "typedef", Set.of("foo_config")));
+        assertEquals(List.of("foo_exit", "foo_config"), index.unknown(whitelist).stream().map(ArgFile.Entry::name).toList());
+        assertEquals(List.of("struct"), index.findByName("foo_config").stream().map(SymbolIndex.Symbol::kind).toList());
+        var expanded = index.closure(ArgFile.of(Map.of("function", Set.of("foo_init"))));
+        assertEquals(Set.of("function foo_init", "struct foo_config", "struct foo_point", "typedef foo_callback", "typedef foo_point_t"),
+            Set.copyOf(expanded.entries().stream().map(e -> SymbolIndex.key(e.kind(), e.name())).toList()));
+    }
+
+    @Test
+    void shouldRoundTripBinaryFormat(@TempDir Path dir) throws Exception {
+        var index = index(dir);
+        index.write(dir.resolve("symbols.idx"));
+        assertEquals(index.symbols(), SymbolIndex.read(dir.resolve("symbols.idx")).symbols());
+    }
+}
@@ -0,0 +1,80 @@
+package de.infolektuell.gradle.jextract.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TarGzExtractorTest {
+    private static void entry(OutputStream out, String name, int mode, char type, byte[] content) throws IOException {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, String.format("%07o", mode));
+        put(header, 108, "0000000");
+        put(header, 116, "0000000");
+        put(header, 124, String.format("%011o", content.length));
+        put(header, 136, "00000000000");
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        for (int i = 148; i < 156; i++) header[i] = ' ';
+        int sum = 0;
+        for (byte b : header) sum += b & 0xff;
+        put(header, 148, String.format("%06o", sum));
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    private static Path archive(Path dir) throws IOException {
+        var tar = new ByteArrayOutputStream();
+        entry(tar, "jextract-25/", 0755, '5', new byte[0]);
+        entry(tar, "jextract-25/bin/", 0755, '5', new byte[0]);
+        entry(tar, "jextract-25/bin/jextract", 0755, '0', "#!/bin/sh\n".getBytes(StandardCharsets.UTF_8));
+        entry(tar, "jextract-25/lib/modules", 0644, '0', new byte[70_000]);
+        tar.write(new byte[1024]);
+        Path archive = dir.resolve("jextract.tar.gz");
+        try (var out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(tar.toByteArray());
+        }
+        return archive;
+    }
+
+    @Test
+    void shouldExtractArchiveAndFindExecutable(@TempDir Path dir) throws Exception {
+        Path root = dir.resolve("installation/25");
+        var executable = TarGzExtractor.extract(archive(dir), root, "jextract");
+        assertEquals(Path.of("jextract-25/bin/jextract"), executable.orElseThrow());
+        assertEquals("#!/bin/sh\n", Files.readString(root.resolve(executable.get())));
+        assertEquals(70_000, Files.size(root.resolve("jextract-25/lib/modules")));
+        if (root.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertTrue(Files.isExecutable(root.resolve(executable.get())));
+            assertFalse(Files.isExecutable(root.resolve("jextract-25/lib/modules")));
+        }
+    }
+
+    @Test
+    void shouldReplacePreviousInstallation(@TempDir Path dir) throws Exception {
+        Path root = dir.resolve("installation/25");
+        Files.createDirectories(root);
+        Files.writeString(root.resolve("stale.txt"), "stale");
+        TarGzExtractor.extract(archive(dir), root, "jextract");
+        assertFalse(Files.exists(root.resolve("stale.txt")));
+        try (var s = Files.list(root.getParent())) {
+            assertEquals(1, s.count());
+        }
+    }
+}
@@ -2,6 +2,8 @@ package de.infolektuell.gradle.jextract.service;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -44,4 +46,37 @@ class JextractStoreTest {
         assertThrows(Exception.class, () -> JextractStore.parseExecutableVersion("\nJextract 22"));
     }
 
+    @Test
+    void shouldParseLauncherOptionsFromShellScript() {
+        String script = """
+            #!/bin/sh
+            JLINK_VM_OPTIONS="--enable-native-access=org.openjdk.jextract"
+            DIR=`dirname $0`
+            $DIR/java $JLINK_VM_OPTIONS -m org.openjdk.jextract/org.openjdk.jextract.JextractTool "$@"
+            """;
+        assertEquals(List.of("--enable-native-access=org.openjdk.jextract"), JextractStore.parseLauncherOptions(script));
+    }
+
+    @Test
+    void shouldParseLauncherOptionsFromBatchScript() {
+        String script = """
+            @echo off
+            set JLINK_VM_OPTIONS=--enable-preview --enable-native-access=org.openjdk.jextract
+            set DIR=%~dp0
+            "%DIR%\\java" %JLINK_VM_OPTIONS% -m org.openjdk.jextract/org.openjdk.jextract.JextractTool %*
+            """;
+        assertEquals(List.of("--enable-preview", "--enable-native-access=org.openjdk.jextract"), JextractStore.parseLauncherOptions(script));
+    }
+
+    @Test
+    void shouldParseLauncherMainClass() {
+        String script = """
+            #!/bin/sh
+            JLINK_VM_OPTIONS=--enable-native-access=org.openjdk.jextract
+            DIR=`dirname $0`
+            $DIR/java $JLINK_VM_OPTIONS -m org.openjdk.jextract/org.openjdk.jextract.JextractTool "$@"
+            """;
+        assertEquals("org.openjdk.jextract/org.openjdk.jextract.JextractTool", JextractStore.parseLauncherMain(script));
+        assertEquals("org.openjdk.jextract/org.openjdk.jextract.JextractTool", JextractStore.parseLauncherMain("#!/bin/sh"));
+    }
 }